@@ -0,0 +1,141 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Long-running batch mode of TwoTSPNearestNeighbor: solves many instances in one JVM on a fixed pool of worker
+// threads, so JVM start and JIT warm-up are paid once. Jobs come from a directory (every .txt file whose name does
+// not contain "output") or from standard input, one "input [output]" pair per line. Outputs use the format of
+// writeOutput; without an explicit name "input" in the file name becomes "output", as in test-input-4.txt and
+// test-output-4.txt. Every job prints one line with its latency, and a summary with the throughput ends the run.
+// At most twice as many jobs as workers are queued, so a long stream on standard input is read as it is solved.
+public class BatchSolver {
+
+    private final SolverOptions options;
+    private final SolverOptions jobOptions; // Options of a single job, which runs on one worker thread
+    private final ExecutorService pool;
+    private final Semaphore slots;
+    private final long start = System.nanoTime();
+    private final List<Long> latencies = new ArrayList<>(); // Nanoseconds from submission to completion
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private BatchSolver(SolverOptions options) {
+        this.options = options;
+        this.jobOptions = options.copy();
+        this.jobOptions.threads = 1; // Jobs already run in parallel, a parallel multi-start would oversubscribe
+        this.pool = Executors.newFixedThreadPool(options.threads);
+        this.slots = new Semaphore(2 * options.threads);
+    }
+
+    // Runs the batch described by --batch=directory or --batch=- and prints the report to standard output
+    public static void run(SolverOptions options) throws IOException, InterruptedException {
+        BatchSolver batch = new BatchSolver(options);
+        try {
+            if (options.batch.equals("-")) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.trim().split("\\s+");
+                    if (parts[0].isEmpty()) continue;
+                    batch.submit(parts[0], parts.length > 1 ? parts[1] : outputName(parts[0], options.batchOutput));
+                }
+            } else {
+                File directory = new File(options.batch);
+                File[] files = directory.listFiles((dir, name) -> name.endsWith(".txt") && !name.contains("output"));
+                if (files == null) {
+                    throw new IOException("Not a directory: " + options.batch);
+                }
+                Arrays.sort(files);
+                for (File file : files) {
+                    String output = outputName(file.getPath(), options.batchOutput);
+                    batch.submit(file.getPath(), output);
+                }
+            }
+        } finally {
+            batch.pool.shutdown();
+            batch.pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        batch.printSummary();
+    }
+
+    // Output file of an input file: "input" in the name replaced with "output", in outputDirectory if given
+    static String outputName(String input, String outputDirectory) {
+        File file = new File(input);
+        String name = file.getName();
+        int index = name.lastIndexOf("input");
+        if (index >= 0) {
+            name = name.substring(0, index) + "output" + name.substring(index + "input".length());
+        } else {
+            int dot = name.lastIndexOf('.');
+            name = (dot > 0 ? name.substring(0, dot) : name) + "-output.txt";
+        }
+        File directory = outputDirectory != null ? new File(outputDirectory) : file.getParentFile();
+        return new File(directory, name).getPath();
+    }
+
+    private void submit(String input, String output) throws InterruptedException {
+        slots.acquire();
+        long submitted = System.nanoTime();
+        pool.execute(() -> {
+            try {
+                solve(input, output, submitted);
+            } finally {
+                slots.release();
+            }
+        });
+    }
+
+    private void solve(String input, String output, long submitted) {
+        long started = System.nanoTime();
+        try {
+            CityFile file = CityFile.read(input);
+            List<int[]> cities = TwoTSPNearestNeighbor.cityList(file);
+            int[][] paths = TwoTSPNearestNeighbor.solve(cities, jobOptions);
+            TwoTSPNearestNeighbor.writeOutput(output, paths[0], paths[1], cities);
+            long finished = System.nanoTime();
+            int cost = TwoTSPNearestNeighbor.calculateCost(paths[0], cities) + TwoTSPNearestNeighbor.calculateCost(paths[1], cities);
+            record(finished - submitted);
+            System.out.printf(Locale.ROOT, "%s -> %s: %d cities, cost %d, latency %.1f ms (solved in %.1f ms)%n",
+                    input, output, file.size(), cost, (finished - submitted) / 1e6, (finished - started) / 1e6);
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            record(System.nanoTime() - submitted);
+            System.out.println(input + ": FAILED " + e);
+        }
+    }
+
+    private void record(long latency) {
+        synchronized (latencies) {
+            latencies.add(latency);
+        }
+    }
+
+    private void printSummary() {
+        long[] sorted;
+        synchronized (latencies) {
+            sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "%d jobs (%d failed), %d workers, %.2f s, %.2f jobs/s",
+                sorted.length, failed.get(), options.threads, seconds, sorted.length / Math.max(seconds, 1e-9));
+        if (sorted.length > 0) {
+            System.out.printf(Locale.ROOT, ", latency p50 %.1f ms, p95 %.1f ms, max %.1f ms",
+                    percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.95) / 1e6, sorted[sorted.length - 1] / 1e6);
+        }
+        System.out.println();
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
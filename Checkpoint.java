@@ -0,0 +1,115 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Solved instance saved as a compact binary file, so that later runs can resume from its paths instead of solving
+// again (see IncrementalSolver). Big-endian layout: the magic "2TSP", the format version, the city count n, the n x
+// and then the n y coordinates, and for each salesman the length of the path followed by its cities.
+// Candidate lists and the spatial index are not stored, they are rebuilt from the coordinates in milliseconds.
+public class Checkpoint {
+
+    private static final int MAGIC = 0x32545350; // "2TSP"
+    private static final int VERSION = 1;
+
+    public final int[] xs;
+    public final int[] ys;
+    public final int[][] paths;
+
+    public Checkpoint(int[] xs, int[] ys, int[][] paths) {
+        this.xs = xs;
+        this.ys = ys;
+        this.paths = paths;
+    }
+
+    // Checkpoint of the paths over the given cities
+    public static Checkpoint of(List<int[]> cities, int[][] paths) {
+        IntDistanceKernel kernel = IntDistanceKernel.of(cities);
+        return new Checkpoint(kernel.xs, kernel.ys, paths);
+    }
+
+    // Coordinates in the list form the solver works on
+    public List<int[]> cities() {
+        List<int[]> cities = new ArrayList<>(xs.length);
+        for (int i = 0; i < xs.length; i++) {
+            cities.add(new int[]{xs[i], ys[i]});
+        }
+        return cities;
+    }
+
+    public void write(String file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(xs.length);
+            for (int x : xs) {
+                out.writeInt(x);
+            }
+            for (int y : ys) {
+                out.writeInt(y);
+            }
+            for (int[] path : paths) {
+                out.writeInt(path.length);
+                for (int city : path) {
+                    out.writeInt(city);
+                }
+            }
+        }
+    }
+
+    // Reads a checkpoint, failing if the file is not one or its paths do not visit every city exactly once
+    public static Checkpoint read(String file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a checkpoint");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(file + " has checkpoint version " + version + ", expected " + VERSION);
+            }
+            int n = in.readInt();
+            if (n < 0) {
+                throw new IOException(file + " is corrupt: negative city count");
+            }
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = in.readInt();
+            }
+            for (int i = 0; i < n; i++) {
+                ys[i] = in.readInt();
+            }
+            boolean[] seen = new boolean[n];
+            int visited = 0;
+            int[][] paths = new int[2][];
+            for (int p = 0; p < 2; p++) {
+                int length = in.readInt();
+                if (length < 0 || length > n - visited) {
+                    throw new IOException(file + " is corrupt: path " + (p + 1) + " has length " + length);
+                }
+                paths[p] = new int[length];
+                for (int i = 0; i < length; i++) {
+                    int city = in.readInt();
+                    if (city < 0 || city >= n || seen[city]) {
+                        throw new IOException(file + " is corrupt: city " + city + " in path " + (p + 1));
+                    }
+                    seen[city] = true;
+                    paths[p][i] = city;
+                }
+                visited += length;
+            }
+            if (visited != n) {
+                throw new IOException(file + " is corrupt: the paths visit " + visited + " of " + n + " cities");
+            }
+            return new Checkpoint(xs, ys, paths);
+        } catch (EOFException e) {
+            throw new IOException(file + " is truncated", e);
+        }
+    }
+}
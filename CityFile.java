@@ -0,0 +1,175 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+// City file loaded into primitive coordinate arrays. Every line holds the integer record "id x y" separated by
+// spaces or tabs; the id is checked but not kept, cities are numbered by their line like before. The file is memory
+// mapped and parsed byte by byte, so no strings or other objects are created per line. Blank lines are skipped,
+// any other malformed line fails with its line number.
+public class CityFile {
+
+    private static final long WINDOW = 1L << 30; // Largest part of the file mapped at once
+
+    public final int[] xs;
+    public final int[] ys;
+    public final long bytes;       // Size of the parsed file
+    public final long elapsedNanos; // Time spent mapping and parsing
+    private final String file;
+
+    private CityFile(String file, int[] xs, int[] ys, long bytes, long elapsedNanos) {
+        this.file = file;
+        this.xs = xs;
+        this.ys = ys;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public static CityFile read(String file) throws IOException {
+        long start = System.nanoTime();
+        Parser parser = new Parser(file);
+        long bytes;
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            bytes = channel.size();
+            long position = 0;
+            while (position < bytes) {
+                long length = Math.min(WINDOW, bytes - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                // A line cut off by the end of the window is parsed again at the start of the next one
+                position += parser.parse(buffer, position + length == bytes);
+            }
+        }
+        int[] xs = Arrays.copyOf(parser.xs, parser.size);
+        int[] ys = Arrays.copyOf(parser.ys, parser.size);
+        return new CityFile(file, xs, ys, bytes, System.nanoTime() - start);
+    }
+
+    public int size() {
+        return xs.length;
+    }
+
+    // Parse rate in megabytes per second
+    public double megabytesPerSecond() {
+        return bytes / 1e6 / Math.max(elapsedNanos, 1) * 1e9;
+    }
+
+    // One line summary of the parse throughput
+    public String summary() {
+        return String.format(Locale.ROOT, "Parsed %d cities (%.1f MB) from %s in %.1f ms, %.1f MB/s",
+                size(), bytes / 1e6, file, elapsedNanos / 1e6, megabytesPerSecond());
+    }
+
+    // Growing coordinate arrays filled line by line
+    private static final class Parser {
+        private final String file;
+        private int[] xs = new int[1024];
+        private int[] ys = new int[1024];
+        private int size;
+        private long line;
+
+        Parser(String file) {
+            this.file = file;
+        }
+
+        // Parses the complete lines of the buffer, or all of it if it ends the file, and returns the bytes consumed
+        private long parse(MappedByteBuffer buffer, boolean endOfFile) throws IOException {
+            int limit = buffer.limit();
+            int lineStart = 0;
+            int i = 0;
+            while (i < limit) {
+                int end = i;
+                while (end < limit && buffer.get(end) != '\n') {
+                    end++;
+                }
+                if (end == limit && !endOfFile) {
+                    if (lineStart == 0) {
+                        throw new IOException(file + ": line " + (line + 1) + " is longer than " + WINDOW + " bytes");
+                    }
+                    break;
+                }
+                line++;
+                parseLine(buffer, i, end);
+                i = end + 1;
+                lineStart = Math.min(i, limit);
+            }
+            return lineStart;
+        }
+
+        // Parses the record between from (inclusive) and to (exclusive), the line break excluded
+        private void parseLine(MappedByteBuffer buffer, int from, int to) throws IOException {
+            if (to > from && buffer.get(to - 1) == '\r') {
+                to--;
+            }
+            int i = skipBlanks(buffer, from, to);
+            if (i == to) {
+                return; // Blank line
+            }
+            long x = 0, y = 0;
+            for (int field = 0; field < 3; field++) {
+                if (i == to) {
+                    throw malformed(buffer, from, to, "expected 3 integers \"id x y\"");
+                }
+                boolean negative = buffer.get(i) == '-';
+                if (negative) {
+                    i++;
+                }
+                int digits = i;
+                long value = 0;
+                while (i < to) {
+                    int digit = buffer.get(i) - '0';
+                    if (digit < 0 || digit > 9) break;
+                    value = value * 10 + digit;
+                    if (value > Integer.MAX_VALUE + 1L) {
+                        throw malformed(buffer, from, to, "integer out of range");
+                    }
+                    i++;
+                }
+                if (i == digits || (i < to && !isBlank(buffer.get(i)))) {
+                    throw malformed(buffer, from, to, "expected 3 integers \"id x y\"");
+                }
+                value = negative ? -value : value;
+                if (value > Integer.MAX_VALUE) {
+                    throw malformed(buffer, from, to, "integer out of range");
+                }
+                if (field == 1) x = value;
+                if (field == 2) y = value;
+                i = skipBlanks(buffer, i, to);
+            }
+            if (i != to) {
+                throw malformed(buffer, from, to, "expected 3 integers \"id x y\"");
+            }
+
+            if (size == xs.length) {
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+            }
+            xs[size] = (int) x;
+            ys[size] = (int) y;
+            size++;
+        }
+
+        private static int skipBlanks(MappedByteBuffer buffer, int i, int to) {
+            while (i < to && isBlank(buffer.get(i))) {
+                i++;
+            }
+            return i;
+        }
+
+        private static boolean isBlank(byte b) {
+            return b == ' ' || b == '\t';
+        }
+
+        private IOException malformed(MappedByteBuffer buffer, int from, int to, String reason) {
+            byte[] text = new byte[Math.min(to - from, 80)];
+            for (int k = 0; k < text.length; k++) {
+                text[k] = buffer.get(from + k);
+            }
+            return new IOException(file + ": line " + line + ": " + reason + ", found \""
+                    + new String(text, StandardCharsets.US_ASCII) + "\"");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+// Computes Euclidean distances on demand from packed coordinate arrays instead of a dense V x V matrix.
+// An optional bounded row cache keeps the most recently used rows, so memory stays linear in the city count.
+public class CoordinateDistanceProvider implements DistanceProvider {
+
+    private final double[] xs;
+    private final double[] ys;
+    private final Row[] cache; // Direct-mapped row cache, null when caching is disabled
+
+    public CoordinateDistanceProvider(double[] xs, double[] ys) {
+        this(xs, ys, 0);
+    }
+
+    public CoordinateDistanceProvider(double[] xs, double[] ys, int cachedRows) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Coordinate arrays differ in length: " + xs.length + " != " + ys.length);
+        }
+        if (cachedRows < 0) {
+            throw new IllegalArgumentException("Number of cached rows must not be negative: " + cachedRows);
+        }
+        this.xs = xs;
+        this.ys = ys;
+        this.cache = cachedRows > 0 ? new Row[cachedRows] : null;
+    }
+
+    @Override
+    public int size() {
+        return xs.length;
+    }
+
+    @Override
+    public double distance(int from, int to) {
+        if (cache == null) {
+            return euclidean(from, to);
+        }
+        return row(from)[to];
+    }
+
+    public double x(int city) {
+        return xs[city];
+    }
+
+    public double y(int city) {
+        return ys[city];
+    }
+
+    // Returns the full distance row of a city, computing and caching it when it is not present
+    private double[] row(int city) {
+        int slot = city % cache.length;
+        Row row = cache[slot];
+        if (row == null || row.city != city) {
+            double[] values = new double[xs.length];
+            for (int other = 0; other < values.length; other++) {
+                values[other] = euclidean(city, other);
+            }
+            row = new Row(city, values);
+            cache[slot] = row; // Rows are immutable, so racing readers see either the old or the new row
+        }
+        return row.values;
+    }
+
+    private double euclidean(int from, int to) {
+        double dx = xs[from] - xs[to];
+        double dy = ys[from] - ys[to];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private static final class Row {
+        final int city;
+        final double[] values;
+
+        Row(int city, double[] values) {
+            this.city = city;
+            this.values = values;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+// Supplies the distance between two cities identified by their index
+public interface DistanceProvider {
+
+    // Tolerance of the local searches: smaller gains are rounding noise and could make moves cycle
+    double EPSILON = 1e-7;
+
+    // Number of cities the provider knows about
+    int size();
+
+    // Distance between city "from" and city "to"
+    double distance(int from, int to);
+}
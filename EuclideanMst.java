@@ -0,0 +1,118 @@
+// Minimum spanning tree of points in the plane without looking at all V^2 pairs.
+// Boruvka rounds from single points: every round each component takes its shortest edge to another component. The
+// k-nearest-neighbour lists give most of these edges. A point only needs a k-d tree query (which skips subtrees lying
+// entirely in its component) when its k-th neighbour is nearer than the best edge its component has so far, since
+// any city outside the list is at least that far away. So the tree is exact while most queries are skipped.
+public class EuclideanMst {
+
+    private EuclideanMst() {
+    }
+
+    // Returns the V - 1 tree edges as {from, to} arrays, using k nearest neighbours per point to skip queries
+    public static int[][] build(double[] xs, double[] ys, int k) {
+        int n = xs.length;
+        int[][] tree = {new int[Math.max(0, n - 1)], new int[Math.max(0, n - 1)]};
+        if (n < 2) {
+            return tree;
+        }
+        KdTree index = new KdTree(xs, ys);
+        int[][] neighbours = index.candidateLists(k);
+
+        // Squared distance to the farthest listed neighbour; a full list of all other points leaves nothing outside
+        double[] radius = new double[n];
+        for (int a = 0; a < n; a++) {
+            radius[a] = neighbours[a].length == n - 1 ? Double.POSITIVE_INFINITY : 0;
+            for (int b : neighbours[a]) {
+                radius[a] = Math.max(radius[a], squaredDistance(xs, ys, a, b));
+            }
+        }
+
+        int[] root = new int[n];
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            root[i] = i;
+        }
+        int treeSize = 0;
+        int[] component = new int[n];
+        double[] bestWeight = new double[n];
+        int[] bestFrom = new int[n];
+        int[] bestTo = new int[n];
+        while (treeSize < n - 1) {
+            for (int i = 0; i < n; i++) {
+                component[i] = find(root, i);
+                bestWeight[i] = Double.POSITIVE_INFINITY;
+            }
+            // Shortest listed edge out of every component
+            for (int a = 0; a < n; a++) {
+                int c = component[a];
+                for (int b : neighbours[a]) {
+                    double weight = squaredDistance(xs, ys, a, b);
+                    if (component[b] != c && weight < bestWeight[c]) {
+                        bestWeight[c] = weight;
+                        bestFrom[c] = a;
+                        bestTo[c] = b;
+                    }
+                }
+            }
+            // Points whose unlisted cities could still be nearer ask the k-d tree
+            boolean labelled = false;
+            for (int a = 0; a < n; a++) {
+                int c = component[a];
+                if (radius[a] >= bestWeight[c]) continue;
+                if (!labelled) {
+                    index.setComponents(component);
+                    labelled = true;
+                }
+                int b = index.nearestOutside(a, bestWeight[c]);
+                if (b != -1) {
+                    bestWeight[c] = squaredDistance(xs, ys, a, b);
+                    bestFrom[c] = a;
+                    bestTo[c] = b;
+                }
+            }
+            for (int c = 0; c < n; c++) {
+                if (component[c] == c && bestWeight[c] != Double.POSITIVE_INFINITY
+                        && union(root, rank, bestFrom[c], bestTo[c])) {
+                    tree[0][treeSize] = bestFrom[c];
+                    tree[1][treeSize] = bestTo[c];
+                    treeSize++;
+                }
+            }
+        }
+        return tree;
+    }
+
+    private static double squaredDistance(double[] xs, double[] ys, int a, int b) {
+        double dx = xs[a] - xs[b];
+        double dy = ys[a] - ys[b];
+        return dx * dx + dy * dy;
+    }
+
+    // Union-find root with path halving
+    private static int find(int[] root, int i) {
+        while (root[i] != i) {
+            root[i] = root[root[i]];
+            i = root[i];
+        }
+        return i;
+    }
+
+    // Joins the sets of a and b by rank, returns false if they already were one set
+    private static boolean union(int[] root, int[] rank, int a, int b) {
+        a = find(root, a);
+        b = find(root, b);
+        if (a == b) {
+            return false;
+        }
+        if (rank[a] < rank[b]) {
+            int temp = a;
+            a = b;
+            b = temp;
+        }
+        root[b] = a;
+        if (rank[a] == rank[b]) {
+            rank[a]++;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,56 @@
+// First-improvement 2-opt over every pair of edges of a tour, as TwoSalesmenTSP runs it after the split.
+// It tries the edges (path[i], path[i + 1]) and (path[j], path[j + 1]) for 1 <= i < j - 1 and j <= n - 2 in order and
+// applies an improving move at once by reversing the positions i + 1 .. j, so the first city stays in place and the
+// edges at the first city are never changed. Gains below DistanceProvider.EPSILON are ignored, otherwise a move whose
+// gain is only rounding noise could be applied back and forth forever.
+public class ExhaustiveTwoOpt {
+
+    private ExhaustiveTwoOpt() {
+    }
+
+    // Optimizes the path in place until no move improves, records every sweep as a pass of the phase and returns it
+    public static int[] optimize(int[] path, DistanceProvider distances, Metrics.Phase phase) {
+        int n = path.length;
+        boolean improvement = true;
+        while (improvement) {
+            improvement = false;
+            long evaluated = 0;
+            long applied = 0;
+            for (int i = 1; i < n - 2; i++) {
+                for (int j = i + 2; j < n - 1; j++) {
+                    evaluated++;
+                    double delta = -distances.distance(path[i], path[i + 1]) - distances.distance(path[j], path[j + 1])
+                            + distances.distance(path[i], path[j]) + distances.distance(path[i + 1], path[j + 1]);
+                    if (delta < -DistanceProvider.EPSILON) {
+                        reverse(path, i + 1, j);
+                        improvement = true;
+                        applied++;
+                    }
+                }
+            }
+            if (phase.enabled()) {
+                phase.pass(evaluated, applied, length(path, distances));
+            }
+        }
+        return path;
+    }
+
+    // Length of the closed tour
+    private static double length(int[] path, DistanceProvider distances) {
+        double total = 0;
+        for (int i = 0; i < path.length; i++) {
+            total += distances.distance(path[i], path[(i + 1) % path.length]);
+        }
+        return total;
+    }
+
+    private static void reverse(int[] path, int start, int end) {
+        while (start < end) {
+            int temp = path[start];
+            path[start] = path[end];
+            path[end] = temp;
+            start++;
+            end--;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import java.util.Arrays;
+
+// Orders cities along a Hilbert curve laid over their bounding box. Cities that are close in the order are close in
+// the plane, which makes the order a cheap starting tour and a numbering under which neighbouring cities also sit
+// next to each other in memory.
+// Coordinates are scaled to a 2^15 x 2^15 grid with the same scale on both axes; cities in the same grid cell keep
+// their input order. Sorting the packed (curve index, city) keys takes O(n log n).
+public class HilbertCurve {
+
+    private static final int BITS = 15; // Grid resolution per axis, the curve index then fits in 30 bits
+
+    private HilbertCurve() {
+    }
+
+    // Cities in the order in which the curve visits them
+    public static int[] order(int[] xs, int[] ys) {
+        int n = xs.length;
+        long minX = Long.MAX_VALUE, minY = Long.MAX_VALUE, maxX = Long.MIN_VALUE, maxY = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        long span = Math.max(1, Math.max(maxX - minX, maxY - minY));
+        double scale = ((1 << BITS) - 1) / (double) span;
+
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            int gridX = (int) ((xs[i] - minX) * scale);
+            int gridY = (int) ((ys[i] - minY) * scale);
+            keys[i] = index(gridX, gridY) << 32 | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[n];
+        for (int k = 0; k < n; k++) {
+            order[k] = (int) keys[k];
+        }
+        return order;
+    }
+
+    // Inverse of a permutation: the position of every city in the order
+    public static int[] inverse(int[] order) {
+        int[] position = new int[order.length];
+        for (int k = 0; k < order.length; k++) {
+            position[order[k]] = k;
+        }
+        return position;
+    }
+
+    // Distance along the curve of the grid cell (x, y), both in [0, 2^BITS)
+    static long index(int x, int y) {
+        int side = 1 << BITS;
+        long index = 0;
+        for (int s = side / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            index += (long) s * s * ((3 * rx) ^ ry);
+            // Rotate the quadrant so that the sub-curve starts and ends like the whole curve
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = side - 1 - x;
+                    y = side - 1 - y;
+                }
+                int temp = x;
+                x = y;
+                y = temp;
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,261 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+// Updates the paths of a checkpoint after cities were added or removed, instead of solving the changed instance
+// from scratch. Removed cities are cut out of their path, added cities are put where they lengthen the paths least
+// (cheapest insertion between a nearby city and one of its path neighbours, or at a path end), and the neighbour-list
+// 2-opt then repairs the paths around the cities whose edges changed. Apart from linear passes over the arrays and
+// bucketing the cities into a grid, the work is proportional to the size of the change.
+// Cities are renumbered like a new input file would number them: the remaining cities keep their order and the
+// added cities follow in the order of the diff.
+public class IncrementalSolver {
+
+    // Cities to remove, by their number in the checkpoint, and coordinates of the cities to add
+    public static final class Diff {
+        public final int[] removed;
+        public final int[] addedXs;
+        public final int[] addedYs;
+
+        public Diff(int[] removed, int[] addedXs, int[] addedYs) {
+            this.removed = removed;
+            this.addedXs = addedXs;
+            this.addedYs = addedYs;
+        }
+
+        // Reads a diff file with one change per line: "+ x y" adds a city, "- id" removes one. Blank lines are skipped.
+        public static Diff read(String file) throws IOException {
+            List<String> lines = Files.readAllLines(Paths.get(file));
+            int[] removed = new int[lines.size()];
+            int[] addedXs = new int[lines.size()];
+            int[] addedYs = new int[lines.size()];
+            int removeCount = 0, addCount = 0;
+            for (int line = 0; line < lines.size(); line++) {
+                String text = lines.get(line).trim();
+                if (text.isEmpty()) continue;
+                String[] fields = text.split("\\s+");
+                try {
+                    if (fields[0].equals("+") && fields.length == 3) {
+                        addedXs[addCount] = Integer.parseInt(fields[1]);
+                        addedYs[addCount++] = Integer.parseInt(fields[2]);
+                    } else if (fields[0].equals("-") && fields.length == 2) {
+                        removed[removeCount++] = Integer.parseInt(fields[1]);
+                    } else {
+                        throw new IOException(file + ": line " + (line + 1) + ": expected \"+ x y\" or \"- id\", found \""
+                                + text + "\"");
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException(file + ": line " + (line + 1) + ": integer out of range, found \"" + text + "\"");
+                }
+            }
+            return new Diff(Arrays.copyOf(removed, removeCount), Arrays.copyOf(addedXs, addCount),
+                    Arrays.copyOf(addedYs, addCount));
+        }
+    }
+
+    private IncrementalSolver() {
+    }
+
+    // Applies the diff to the checkpoint and returns the checkpoint of the changed instance
+    public static Checkpoint update(Checkpoint checkpoint, Diff diff, int neighbors) {
+        return update(checkpoint, diff, neighbors, Metrics.Phase.NONE);
+    }
+
+    // Applies the diff, recording the repair as a pass of the given phase
+    public static Checkpoint update(Checkpoint checkpoint, Diff diff, int neighbors, Metrics.Phase phase) {
+        int old = checkpoint.xs.length;
+        boolean[] removed = new boolean[old];
+        for (int city : diff.removed) {
+            if (city < 0 || city >= old) {
+                throw new IllegalArgumentException("Cannot remove city " + city + ", the checkpoint has " + old + " cities");
+            }
+            removed[city] = true;
+        }
+
+        // New numbers: the remaining cities in their old order, then the added ones
+        int[] renumber = new int[old];
+        int kept = 0;
+        for (int city = 0; city < old; city++) {
+            renumber[city] = removed[city] ? -1 : kept++;
+        }
+        int n = kept + diff.addedXs.length;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int city = 0; city < old; city++) {
+            if (renumber[city] != -1) {
+                xs[renumber[city]] = checkpoint.xs[city];
+                ys[renumber[city]] = checkpoint.ys[city];
+            }
+        }
+        System.arraycopy(diff.addedXs, 0, xs, kept, diff.addedXs.length);
+        System.arraycopy(diff.addedYs, 0, ys, kept, diff.addedYs.length);
+
+        // Cut the removed cities out, marking the cities that got a new path neighbour
+        LinkedPaths paths = new LinkedPaths(n);
+        boolean[] touched = new boolean[n];
+        for (int p = 0; p < 2; p++) {
+            boolean gap = false;
+            for (int city : checkpoint.paths[p]) {
+                int c = renumber[city];
+                if (c == -1) {
+                    gap = true;
+                    if (paths.tail[p] != -1) touched[paths.tail[p]] = true;
+                    continue;
+                }
+                if (gap) touched[c] = true;
+                gap = false;
+                paths.insertAfter(p, paths.tail[p], c);
+            }
+        }
+
+        // Candidate lists are only built around the change: for the added cities, the cities whose edges changed and
+        // their neighbours. Every other city has an empty list, which keeps the repair within that neighbourhood.
+        IntDistanceKernel distances = new IntDistanceKernel(xs, ys);
+        UniformGrid index = new UniformGrid(xs, ys); // Built in linear time, only a few queries follow
+        int[][] candidates = new int[n][];
+        int[] buffer = new int[Math.max(0, Math.min(neighbors, n - 1))];
+
+        // Cheapest insertion of the added cities
+        for (int v = kept; v < n; v++) {
+            candidates[v] = nearest(index, v, buffer);
+            paths.insertCheapest(v, distances, candidates[v]);
+            touched[v] = true;
+            if (paths.next[v] != -1) touched[paths.next[v]] = true;
+            if (paths.prev[v] != -1) touched[paths.prev[v]] = true;
+        }
+        for (int city = 0; city < n; city++) {
+            if (!touched[city]) continue;
+            if (candidates[city] == null) {
+                candidates[city] = nearest(index, city, buffer);
+            }
+            for (int neighbour : candidates[city]) {
+                if (candidates[neighbour] == null) {
+                    candidates[neighbour] = nearest(index, neighbour, buffer);
+                }
+            }
+        }
+        int[] empty = new int[0];
+        for (int city = 0; city < n; city++) {
+            if (candidates[city] == null) {
+                candidates[city] = empty;
+            }
+        }
+
+        // Local 2-opt repair around the changed edges
+        int[][] result = new int[2][];
+        long evaluated = 0, applied = 0;
+        for (int p = 0; p < 2; p++) {
+            Tour tour = new Tour(paths.toArray(p), n, false);
+            NeighborListTwoOpt search = new NeighborListTwoOpt(tour, distances, candidates);
+            for (int i = 0; i < tour.size(); i++) {
+                if (touched[tour.city(i)]) {
+                    search.wake(tour.city(i));
+                }
+            }
+            search.run();
+            evaluated += search.movesEvaluated();
+            applied += search.movesApplied();
+            result[p] = tour.toArray();
+        }
+        if (phase.enabled()) {
+            phase.pass(evaluated, applied, new Tour(result[0], n, false).length(distances)
+                    + new Tour(result[1], n, false).length(distances));
+        }
+        return new Checkpoint(xs, ys, result);
+    }
+
+    private static int[] nearest(UniformGrid index, int city, int[] buffer) {
+        return Arrays.copyOf(buffer, index.nearest(city, buffer.length, buffer));
+    }
+
+    // Both paths as doubly linked lists, so that cities can be inserted anywhere in constant time
+    private static final class LinkedPaths {
+        final int[] next;
+        final int[] prev;
+        final int[] pathOf; // Path of every city, -1 before it is inserted
+        final int[] head = {-1, -1};
+        final int[] tail = {-1, -1};
+        final int[] size = {0, 0};
+
+        // Best insertion found by consider: city after which to insert (-1 for the head) in bestPath
+        private double bestCost;
+        private int bestPath;
+        private int bestAfter;
+
+        LinkedPaths(int n) {
+            next = new int[n];
+            prev = new int[n];
+            pathOf = new int[n];
+            Arrays.fill(next, -1);
+            Arrays.fill(prev, -1);
+            Arrays.fill(pathOf, -1);
+        }
+
+        // Inserts city v after city a of path p, or at the head for a == -1
+        void insertAfter(int p, int a, int v) {
+            int b = a == -1 ? head[p] : next[a];
+            prev[v] = a;
+            next[v] = b;
+            if (a == -1) head[p] = v; else next[a] = v;
+            if (b == -1) tail[p] = v; else prev[b] = v;
+            pathOf[v] = p;
+            size[p]++;
+        }
+
+        // Inserts city v where it adds the least length next to one of its candidates. An empty path takes the city
+        // at no cost, and without a placed candidate every placed city is tried.
+        void insertCheapest(int v, DistanceProvider distances, int[] candidates) {
+            bestCost = Double.POSITIVE_INFINITY;
+            for (int p = 0; p < 2; p++) {
+                if (head[p] == -1) {
+                    insertAfter(p, -1, v);
+                    return;
+                }
+            }
+            for (int c : candidates) {
+                consider(v, c, distances);
+            }
+            if (bestCost == Double.POSITIVE_INFINITY) {
+                for (int c = 0; c < pathOf.length; c++) {
+                    consider(v, c, distances);
+                }
+            }
+            insertAfter(bestPath, bestAfter, v);
+        }
+
+        // Considers inserting v on either side of the placed city c
+        private void consider(int v, int c, DistanceProvider distances) {
+            int p = pathOf[c];
+            if (p == -1 || c == v) {
+                return;
+            }
+            int after = next[c];
+            double cost = distances.distance(c, v)
+                    + (after == -1 ? 0 : distances.distance(v, after) - distances.distance(c, after));
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestPath = p;
+                bestAfter = c;
+            }
+            int before = prev[c];
+            cost = distances.distance(v, c)
+                    + (before == -1 ? 0 : distances.distance(before, v) - distances.distance(before, c));
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestPath = p;
+                bestAfter = before;
+            }
+        }
+
+        int[] toArray(int p) {
+            int[] path = new int[size[p]];
+            int i = 0;
+            for (int c = head[p]; c != -1; c = next[c]) {
+                path[i++] = c;
+            }
+            return path;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.List;
+
+// Rounded Euclidean distances of TwoTSPNearestNeighbor over flat coordinate arrays.
+// The squared distance s is formed exactly from the integer coordinate differences and rounded without Math.round:
+// with r = floor(sqrt(s)) the rounded distance is r + 1 exactly when s > r * r + r, because (r + 0.5)^2 = r^2 + r + 0.25
+// is never an integer. While both differences stay below 2^24, s is below 2^49, every step is exact in double and the
+// result equals the Math.pow / Math.sqrt / Math.round formula the solver always used. Wider differences fall back to
+// that formula, so the two never disagree.
+// twoOptGains evaluates a block of 2-opt moves over coordinates kept in tour order: a counted loop without
+// lookups through the city list or early exits, which the JIT can unroll and vectorize.
+public class IntDistanceKernel implements DistanceProvider {
+
+    private static final int EXACT_LIMIT = 1 << 24; // Coordinate differences below this take the exact integer path
+
+    public final int[] xs;
+    public final int[] ys;
+    private final boolean exact; // Every coordinate difference of the instance is below EXACT_LIMIT
+
+    public IntDistanceKernel(int[] xs, int[] ys) {
+        this.xs = xs;
+        this.ys = ys;
+        this.exact = span(xs) < EXACT_LIMIT && span(ys) < EXACT_LIMIT;
+    }
+
+    // Kernel over the coordinates of a city list
+    public static IntDistanceKernel of(List<int[]> cities) {
+        int[] xs = new int[cities.size()];
+        int[] ys = new int[cities.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = cities.get(i)[0];
+            ys[i] = cities.get(i)[1];
+        }
+        return new IntDistanceKernel(xs, ys);
+    }
+
+    @Override
+    public int size() {
+        return xs.length;
+    }
+
+    @Override
+    public double distance(int from, int to) {
+        return rounded(from, to);
+    }
+
+    // Rounded distance between two cities
+    public int rounded(int from, int to) {
+        if (exact) {
+            return exactRounded(xs[from] - xs[to], ys[from] - ys[to]);
+        }
+        return rounded(xs[from], ys[from], xs[to], ys[to]);
+    }
+
+    // Rounded distance between two points
+    public static int rounded(int x1, int y1, int x2, int y2) {
+        int dx = x1 - x2;
+        int dy = y1 - y2;
+        if (dx > -EXACT_LIMIT && dx < EXACT_LIMIT && dy > -EXACT_LIMIT && dy < EXACT_LIMIT) {
+            return exactRounded(dx, dy);
+        }
+        return (int) Math.round(Math.sqrt(Math.pow(dx, 2) + Math.pow(dy, 2)));
+    }
+
+    // For every position j in [from, to) stores d(a, p[j]) + d(b, p[j + 1]) - d(p[j], p[j + 1]) in gains[j - from],
+    // where p is given by the coordinate arrays px and py. Subtracting d(a, b) gives the length change of the 2-opt
+    // move that replaces the edges (a, b) and (p[j], p[j + 1]) with (a, p[j]) and (b, p[j + 1]).
+    public void twoOptGains(int ax, int ay, int bx, int by, int[] px, int[] py, int from, int to, int[] gains) {
+        if (exact) {
+            for (int j = from; j < to; j++) {
+                int cx = px[j], cy = py[j], dx = px[j + 1], dy = py[j + 1];
+                gains[j - from] = exactRounded(ax - cx, ay - cy) + exactRounded(bx - dx, by - dy)
+                        - exactRounded(cx - dx, cy - dy);
+            }
+        } else {
+            for (int j = from; j < to; j++) {
+                int cx = px[j], cy = py[j], dx = px[j + 1], dy = py[j + 1];
+                gains[j - from] = rounded(ax, ay, cx, cy) + rounded(bx, by, dx, dy) - rounded(cx, cy, dx, dy);
+            }
+        }
+    }
+
+    // Rounded length of the vector (dx, dy), both components below EXACT_LIMIT in absolute value
+    private static int exactRounded(int dx, int dy) {
+        double squared = (double) dx * dx + (double) dy * dy; // Below 2^49, so exact
+        int root = (int) Math.sqrt(squared);                 // floor of the square root, exact in this range
+        return squared > (double) root * root + root ? root + 1 : root;
+    }
+
+    private static long span(int[] values) {
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (int value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        return values.length == 0 ? 0 : max - min;
+    }
+}
@@ -0,0 +1,335 @@
+// Local search between the two salesmen. Relocates segments of one to three cities from one tour into the other
+// and swaps segments between the tours, so that a bad initial split can still be repaired. New edges are only tried
+// towards candidate neighbours and every move is evaluated from the few edges it changes.
+// The tours are kept as doubly linked cycles over all cities; open paths keep their closing edge fixed and their
+// first and last city never leave their salesman, closed tours keep their first city.
+public class InterTourExchange {
+
+    // What the exchange minimizes
+    public enum Objective {
+        TOTAL,    // Sum of both tour lengths
+        MAKESPAN  // Length of the longer tour, ties broken by the sum
+    }
+
+    private static final int MAX_SEGMENT_LENGTH = 3;
+
+    private final DistanceProvider distances;
+    private final int[][] candidates;
+    private final Objective objective;
+    private final boolean closed;
+    private final int[] next;
+    private final int[] prev;
+    private final int[] owner;      // Salesman of every city
+    private final boolean[] pinned; // Cities that must stay with their salesman
+    private final int[] first = new int[2];
+    private final int[] last = new int[2];
+    private final int[] size = new int[2];
+    private final double[] length = new double[2];
+
+    // Endpoints of the edges changed by the last move
+    private final int[] changed = new int[8];
+    private int changedCount;
+
+    private InterTourExchange(int[][] paths, boolean closed, DistanceProvider distances, int[][] candidates,
+                              Objective objective) {
+        int n = distances.size();
+        this.distances = distances;
+        this.candidates = candidates;
+        this.objective = objective;
+        this.closed = closed;
+        this.next = new int[n];
+        this.prev = new int[n];
+        this.owner = new int[n];
+        this.pinned = new boolean[n];
+        for (int k = 0; k < 2; k++) {
+            int[] path = paths[k];
+            int m = path.length;
+            first[k] = path[0];
+            last[k] = path[m - 1];
+            size[k] = m;
+            for (int i = 0; i < m; i++) {
+                int city = path[i];
+                next[city] = path[(i + 1) % m];
+                prev[city] = path[(i - 1 + m) % m];
+                owner[city] = k;
+            }
+            pinned[first[k]] = true;
+            if (!closed) {
+                pinned[last[k]] = true;
+            }
+            length[k] = pathLength(path);
+        }
+    }
+
+    // Improves the pair of paths until no exchange improves the objective or the deadline (System.nanoTime)
+    // passes. Each salesman's path is re-optimized with neighbour-list 2-opt after a round of exchanges.
+    // A pair with an empty path, as a resumed checkpoint can have, is returned unchanged.
+    public static int[][] optimize(int[][] paths, boolean closed, DistanceProvider distances, int[][] candidates,
+                                   Objective objective, long deadline) {
+        int[][] current = {paths[0].clone(), paths[1].clone()};
+        if (current[0].length == 0 || current[1].length == 0) {
+            return current; // Segments are only inserted between cities of the other tour, an empty one takes none
+        }
+        while (System.nanoTime() < deadline) {
+            InterTourExchange exchange = new InterTourExchange(current, closed, distances, candidates, objective);
+            boolean improved = exchange.run(deadline);
+            current = exchange.toPaths();
+            if (!improved) {
+                break;
+            }
+            for (int k = 0; k < 2; k++) {
+                current[k] = NeighborListTwoOpt.optimize(current[k], distances, candidates, closed);
+            }
+        }
+        return current;
+    }
+
+    private boolean run(long deadline) {
+        int n = size[0] + size[1];
+        int[] queue = new int[n];
+        int head = 0, count = 0;
+        boolean[] queued = new boolean[next.length];
+        for (int k = 0; k < 2; k++) {
+            int city = first[k];
+            for (int i = 0; i < size[k]; i++, city = next[city]) {
+                queue[count++] = city;
+                queued[city] = true;
+            }
+        }
+
+        boolean improved = false;
+        int moves = 0;
+        while (count > 0) {
+            if ((moves & 15) == 0 && System.nanoTime() > deadline) {
+                break;
+            }
+            int a = queue[head];
+            head = (head + 1) % n;
+            count--;
+            queued[a] = false;
+            if (relocate(a) || swap(a)) {
+                improved = true;
+                moves++;
+                for (int k = 0; k < changedCount; k++) {
+                    int city = changed[k];
+                    if (!queued[city]) {
+                        queue[(head + count) % n] = city;
+                        count++;
+                        queued[city] = true;
+                    }
+                }
+            }
+        }
+        return improved;
+    }
+
+    // Moves a segment that has city a at one of its ends into the other tour
+    private boolean relocate(int a) {
+        int from = owner[a];
+        int to = 1 - from;
+        for (int segmentLength = 1; segmentLength <= MAX_SEGMENT_LENGTH; segmentLength++) {
+            if (size[from] - segmentLength < 2) break;
+            for (int direction = 0; direction < 2; direction++) {
+                if (segmentLength == 1 && direction == 1) break;
+                // The segment runs forward from s1 to s2
+                int s1 = direction == 0 ? a : walk(a, 1 - segmentLength);
+                int s2 = direction == 0 ? walk(a, segmentLength - 1) : a;
+                if (containsPinned(s1, segmentLength)) continue;
+                int p = prev[s1];
+                int nx = next[s2];
+                double inner = innerLength(s1, segmentLength);
+                double deltaFrom = distances.distance(p, nx) - distances.distance(p, s1) - distances.distance(s2, nx) - inner;
+
+                for (int end = 0; end < 2; end++) {
+                    int e = end == 0 ? s1 : s2;
+                    for (int c : candidates[e]) {
+                        if (owner[c] != to) continue;
+                        // Insert between c and its successor or between its predecessor and c
+                        for (int side = 0; side < 2; side++) {
+                            int u = side == 0 ? c : prev[c];
+                            int v = next[u];
+                            if (isFixed(u, v)) continue;
+                            double forwardCost = distances.distance(u, s1) + distances.distance(s2, v);
+                            double reversedCost = distances.distance(u, s2) + distances.distance(s1, v);
+                            boolean reversed = reversedCost < forwardCost;
+                            double deltaTo = Math.min(forwardCost, reversedCost) - distances.distance(u, v) + inner;
+                            if (improves(from, deltaFrom, deltaTo)) {
+                                unlink(s1, s2);
+                                link(u, v, s1, s2, reversed, to);
+                                size[from] -= segmentLength;
+                                size[to] += segmentLength;
+                                length[from] += deltaFrom;
+                                length[to] += deltaTo;
+                                setChanged(p, nx, s1, s2, u, v);
+                                return true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // Exchanges a segment that starts or ends at city a with a segment of the other tour next to one of a's candidates
+    private boolean swap(int a) {
+        int tourA = owner[a];
+        int tourB = 1 - tourA;
+        for (int lengthA = 1; lengthA <= MAX_SEGMENT_LENGTH; lengthA++) {
+            if (size[tourA] - lengthA < 2) break;
+            for (int direction = 0; direction < 2; direction++) {
+                if (lengthA == 1 && direction == 1) break;
+                int s1 = direction == 0 ? a : walk(a, 1 - lengthA);
+                int s2 = direction == 0 ? walk(a, lengthA - 1) : a;
+                if (containsPinned(s1, lengthA)) continue;
+                int p = prev[s1];
+                int nx = next[s2];
+                double innerA = innerLength(s1, lengthA);
+                double removedA = distances.distance(p, s1) + distances.distance(s2, nx) + innerA;
+
+                for (int end = 0; end < 2; end++) {
+                    int e = end == 0 ? s1 : s2;
+                    for (int c : candidates[e]) {
+                        if (owner[c] != tourB) continue;
+                        // c becomes a neighbour of the moved segment: the other segment starts after c or ends before c
+                        for (int side = 0; side < 2; side++) {
+                            for (int lengthB = 1; lengthB <= MAX_SEGMENT_LENGTH; lengthB++) {
+                                if (size[tourB] - lengthB < 2) break;
+                                int t1 = side == 0 ? next[c] : walk(c, -lengthB);
+                                int t2 = side == 0 ? walk(c, lengthB) : prev[c];
+                                if (containsPinned(t1, lengthB)) continue;
+                                int q = prev[t1];
+                                int w = next[t2];
+                                double innerB = innerLength(t1, lengthB);
+                                double removedB = distances.distance(q, t1) + distances.distance(t2, w) + innerB;
+
+                                // Segment B goes between p and nx, segment A between q and w, each in its better orientation
+                                double forwardB = distances.distance(p, t1) + distances.distance(t2, nx);
+                                double reversedB = distances.distance(p, t2) + distances.distance(t1, nx);
+                                double forwardA = distances.distance(q, s1) + distances.distance(s2, w);
+                                double reversedA = distances.distance(q, s2) + distances.distance(s1, w);
+                                double deltaA = Math.min(forwardB, reversedB) + innerB - removedA;
+                                double deltaB = Math.min(forwardA, reversedA) + innerA - removedB;
+                                if (improves(tourA, deltaA, deltaB)) {
+                                    unlink(s1, s2);
+                                    unlink(t1, t2);
+                                    link(p, nx, t1, t2, reversedB < forwardB, tourA);
+                                    link(q, w, s1, s2, reversedA < forwardA, tourB);
+                                    size[tourA] += lengthB - lengthA;
+                                    size[tourB] += lengthA - lengthB;
+                                    length[tourA] += deltaA;
+                                    length[tourB] += deltaB;
+                                    setChanged(p, nx, s1, s2, q, w, t1, t2);
+                                    return true;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // Decides whether changing the length of tour k by deltaK and of the other tour by deltaOther is an improvement
+    private boolean improves(int k, double deltaK, double deltaOther) {
+        double total = deltaK + deltaOther;
+        if (objective == Objective.TOTAL) {
+            return total < -DistanceProvider.EPSILON;
+        }
+        double before = Math.max(length[0], length[1]);
+        double after = Math.max(length[k] + deltaK, length[1 - k] + deltaOther);
+        double epsilon = DistanceProvider.EPSILON;
+        return after < before - epsilon || (after <= before + epsilon && total < -epsilon);
+    }
+
+    // Takes the segment s1..s2 out of its tour and closes the gap
+    private void unlink(int s1, int s2) {
+        int p = prev[s1];
+        int nx = next[s2];
+        next[p] = nx;
+        prev[nx] = p;
+    }
+
+    // Inserts the segment s1..s2 between u and v = next(u), optionally reversed, and hands it to the given salesman
+    private void link(int u, int v, int s1, int s2, boolean reversed, int salesman) {
+        int city = s1;
+        while (true) {
+            owner[city] = salesman;
+            int following = next[city];
+            if (reversed) {
+                next[city] = prev[city];
+                prev[city] = following;
+            }
+            if (city == s2) break;
+            city = following;
+        }
+        int head = reversed ? s2 : s1;
+        int tail = reversed ? s1 : s2;
+        next[u] = head;
+        prev[head] = u;
+        next[tail] = v;
+        prev[v] = tail;
+    }
+
+    // Walks the given number of steps forward (positive) or backward (negative)
+    private int walk(int city, int steps) {
+        for (; steps > 0; steps--) city = next[city];
+        for (; steps < 0; steps++) city = prev[city];
+        return city;
+    }
+
+    private boolean containsPinned(int s1, int segmentLength) {
+        for (int k = 0, city = s1; k < segmentLength; k++, city = next[city]) {
+            if (pinned[city]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double innerLength(int s1, int segmentLength) {
+        double total = 0;
+        for (int k = 1, city = s1; k < segmentLength; k++, city = next[city]) {
+            total += distances.distance(city, next[city]);
+        }
+        return total;
+    }
+
+    // True for the closing edge of an open path
+    private boolean isFixed(int a, int b) {
+        int k = owner[a];
+        return !closed && ((a == first[k] && b == last[k]) || (a == last[k] && b == first[k]));
+    }
+
+    private double pathLength(int[] path) {
+        double total = 0;
+        for (int i = 0; i < path.length - 1; i++) {
+            total += distances.distance(path[i], path[i + 1]);
+        }
+        if (closed && path.length > 1) {
+            total += distances.distance(path[path.length - 1], path[0]);
+        }
+        return total;
+    }
+
+    private int[][] toPaths() {
+        int[][] paths = new int[2][];
+        for (int k = 0; k < 2; k++) {
+            int[] path = new int[size[k]];
+            boolean backwards = !closed && size[k] > 2 && next[first[k]] == last[k];
+            int city = first[k];
+            for (int i = 0; i < path.length; i++) {
+                path[i] = city;
+                city = backwards ? prev[city] : next[city];
+            }
+            paths[k] = path;
+        }
+        return paths;
+    }
+
+    private void setChanged(int... cities) {
+        System.arraycopy(cities, 0, changed, 0, cities.length);
+        changedCount = cities.length;
+    }
+}
@@ -0,0 +1,141 @@
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+
+// Anytime improvement of both salesmen's paths by iterated local search. Every iteration picks one path (larger
+// paths more often), applies a local double-bridge kick built from three 2-opt moves, repairs the tour with
+// neighbour-list 2-opt around the kicked cities only, and then accepts or rolls back the result. Costs are tracked
+// incrementally from the changed edges, so an iteration costs about as much as the moves it makes.
+// The best pair of paths seen so far is returned at the deadline. With better-only acceptance the iterations do not
+// depend on timing, so a longer budget never gives a worse result for the same seed.
+public class IteratedLocalSearch {
+
+    // Which kicked tours are kept
+    public enum Acceptance {
+        BETTER, // Only tours that are not longer
+        ANNEAL  // Also longer tours, with a probability that shrinks with the temperature (simulated annealing)
+    }
+
+    // Notified whenever the best total length improves
+    public interface Listener {
+        void improved(double length, long elapsedNanos, long iterations);
+    }
+
+    private static final int MAX_SEGMENT_LENGTH = 50; // Longest segment moved by a kick
+    private static final double START_TEMPERATURE = 0.1; // Start temperature as a fraction of the mean edge length
+
+    private IteratedLocalSearch() {
+    }
+
+    // Improves the paths until the deadline (System.nanoTime) passes and returns the best pair found.
+    // Kicks are only repaired locally, so the paths should already be locally optimal when the search starts.
+    public static int[][] optimize(int[][] paths, boolean closed, DistanceProvider distances, int[][] candidates,
+                                   Acceptance acceptance, long deadline, long seed, Listener listener) {
+        return optimize(paths, closed, distances, candidates, acceptance, deadline, seed, listener,
+                Double.NEGATIVE_INFINITY);
+    }
+
+    // Improves the paths until the deadline passes or the best total length is at most the target length
+    public static int[][] optimize(int[][] paths, boolean closed, DistanceProvider distances, int[][] candidates,
+                                   Acceptance acceptance, long deadline, long seed, Listener listener,
+                                   double targetLength) {
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        Tour[] tours = new Tour[2];
+        NeighborListTwoOpt[] searches = new NeighborListTwoOpt[2];
+        double[] length = new double[2];
+        for (int k = 0; k < 2; k++) {
+            tours[k] = new Tour(paths[k], distances.size(), closed);
+            searches[k] = new NeighborListTwoOpt(tours[k], distances, candidates);
+            length[k] = tours[k].length(distances);
+        }
+        // The best pair is only copied out of the tours when the search is about to leave it
+        int[][] best = null;
+        boolean currentIsBest = true;
+        double bestLength = length[0] + length[1];
+        int cityCount = tours[0].size() + tours[1].size();
+        double startTemperature = START_TEMPERATURE * bestLength / Math.max(1, cityCount);
+
+        long iterations = 0;
+        while (System.nanoTime() < deadline && bestLength > targetLength) {
+            iterations++;
+            int k = random.nextInt(cityCount) < tours[0].size() ? 0 : 1;
+            NeighborListTwoOpt search = searches[k];
+            search.startJournal();
+            double delta = kick(tours[k], search, random);
+            if (Double.isNaN(delta)) {
+                search.commit();
+                continue; // The path is too short for a kick
+            }
+            delta -= search.run();
+
+            boolean accept = delta <= 0;
+            if (!accept && acceptance == Acceptance.ANNEAL) {
+                // The temperature falls linearly to zero at the deadline, so the search ends greedy
+                long now = System.nanoTime();
+                double remaining = (double) (deadline - now) / Math.max(1, deadline - start);
+                double temperature = startTemperature * Math.max(0, Math.min(1, remaining));
+                accept = temperature > 0 && random.nextDouble() < Math.exp(-delta / temperature);
+                if (accept && currentIsBest) {
+                    // Save the best pair before leaving it; this kick is dropped and a later one leaves instead
+                    search.rollback();
+                    best = new int[][]{tours[0].toArray(), tours[1].toArray()};
+                    currentIsBest = false;
+                    continue;
+                }
+            }
+            if (!accept) {
+                search.rollback();
+                continue;
+            }
+            search.commit();
+            length[k] += delta;
+            if (length[0] + length[1] < bestLength - DistanceProvider.EPSILON) {
+                bestLength = length[0] + length[1];
+                currentIsBest = true;
+                if (listener != null) {
+                    listener.improved(bestLength, System.nanoTime() - start, iterations);
+                }
+            }
+        }
+        return currentIsBest ? new int[][]{tours[0].toArray(), tours[1].toArray()} : best;
+    }
+
+    // Listener that prints the best length at most once per second
+    public static Listener progressPrinter(PrintStream out) {
+        long[] lastPrinted = {Long.MIN_VALUE};
+        return (length, elapsedNanos, iterations) -> {
+            if (elapsedNanos - lastPrinted[0] >= 1_000_000_000L) {
+                lastPrinted[0] = elapsedNanos;
+                out.printf("ILS best %.0f after %.1f s and %d iterations%n", length, elapsedNanos / 1e9, iterations);
+            }
+        };
+    }
+
+    // Local double bridge: the consecutive segments B and C of A B C D swap places, giving A C B D. Returns the
+    // change of the tour length, or NaN if the tour has no room for a kick.
+    private static double kick(Tour tour, NeighborListTwoOpt search, SplittableRandom random) {
+        int n = tour.size();
+        if (n < 8) {
+            return Double.NaN;
+        }
+        for (int attempt = 0; attempt < 10; attempt++) {
+            int lengthB = 1 + random.nextInt(Math.min(MAX_SEGMENT_LENGTH, (n - 3) / 2));
+            int lengthC = 1 + random.nextInt(Math.min(MAX_SEGMENT_LENGTH, (n - 3) / 2));
+            int i = random.nextInt(n);
+            int a = tour.city(i);
+            int s1 = tour.city((i + 1) % n);               // First city of B
+            int s2 = tour.city((i + lengthB) % n);         // Last city of B
+            int s3 = tour.city((i + lengthB + 1) % n);     // First city of C
+            int s4 = tour.city((i + lengthB + lengthC) % n); // Last city of C
+            int d = tour.city((i + lengthB + lengthC + 1) % n);
+            if (tour.isFixed(a, s1) || tour.isFixed(s2, s3) || tour.isFixed(s4, d)) continue;
+
+            // A B C D -> A C' B' D -> A C B' D -> A C B D, where ' marks a reversed segment
+            double delta = search.move(a, s1, s4, d);
+            delta += search.move(a, s4, s3, s2);
+            delta += search.move(s4, s2, s1, d);
+            return delta;
+        }
+        return Double.NaN;
+    }
+}
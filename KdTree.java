@@ -0,0 +1,474 @@
+import java.util.Arrays;
+
+// Two-dimensional k-d tree over city coordinates.
+// Answers "nearest remaining city" and "k nearest cities" queries in sub-linear time and supports removing
+// cities once they have been visited. Ties between equally distant cities are broken by the lower city index,
+// which matches the order of a plain linear scan.
+public class KdTree {
+
+    private static final int LEAF_SIZE = 8; // Maximum number of cities stored in a leaf
+
+    private final double[] xs;
+    private final double[] ys;
+    private final int[] cities; // City indices, permuted so that every node covers a contiguous range
+    private final int[] start;  // First position of each node in cities
+    private final int[] end;    // Position after the last city of each node
+    private final int[] left;   // Left child of each node, -1 for leaves
+    private final int[] right;  // Right child of each node, -1 for leaves
+    private final int[] parent; // Parent of each node, -1 for the root
+    private final double[] minX, maxX, minY, maxY; // Bounding box of each node
+    private final int[] alive;  // Number of cities below each node that have not been removed
+    private final int[] leafOf; // Leaf node holding each city
+    private final boolean[] removed;
+    private int nodeCount;
+
+    // Component labels for nearestOutside: of every city, and of every node whose cities share one label (-1 otherwise)
+    private int[] component;
+    private int[] nodeComponent;
+
+    // City weights for cheapestOutside: of every city, and the lowest weight below every node
+    private double[] weight;
+    private double[] nodeWeight;
+
+    // Scratch state of the query that is currently running
+    private double bestDistance;
+    private int bestCity;
+
+    public KdTree(double[] xs, double[] ys) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Coordinate arrays differ in length: " + xs.length + " != " + ys.length);
+        }
+        int n = xs.length;
+        this.xs = xs;
+        this.ys = ys;
+        this.cities = new int[n];
+        for (int i = 0; i < n; i++) {
+            cities[i] = i;
+        }
+        // Leaves hold at least LEAF_SIZE / 2 cities, so the tree never has more than this many nodes
+        int capacity = 2 * (n / (LEAF_SIZE / 2) + 1);
+        this.start = new int[capacity];
+        this.end = new int[capacity];
+        this.left = new int[capacity];
+        this.right = new int[capacity];
+        this.parent = new int[capacity];
+        this.minX = new double[capacity];
+        this.maxX = new double[capacity];
+        this.minY = new double[capacity];
+        this.maxY = new double[capacity];
+        this.alive = new int[capacity];
+        this.leafOf = new int[n];
+        this.removed = new boolean[n];
+        if (n > 0) {
+            build(0, n, -1);
+        }
+    }
+
+    // Builds a tree over int coordinates as stored by TwoTSPNearestNeighbor
+    public static KdTree of(int[] xs, int[] ys) {
+        double[] x = new double[xs.length];
+        double[] y = new double[ys.length];
+        for (int i = 0; i < xs.length; i++) {
+            x[i] = xs[i];
+            y[i] = ys[i];
+        }
+        return new KdTree(x, y);
+    }
+
+    public int size() {
+        return xs.length;
+    }
+
+    // Number of cities that have not been removed yet
+    public int remaining() {
+        return xs.length == 0 ? 0 : alive[0];
+    }
+
+    public boolean isRemoved(int city) {
+        return removed[city];
+    }
+
+    // Removes a city so that later nearest queries no longer return it
+    public void remove(int city) {
+        if (removed[city]) {
+            return;
+        }
+        removed[city] = true;
+        for (int node = leafOf[city]; node != -1; node = parent[node]) {
+            alive[node]--;
+        }
+    }
+
+    // Returns the nearest remaining city to the given city (excluding the city itself), or -1 if there is none
+    public int nearest(int city) {
+        return nearest(xs[city], ys[city], city);
+    }
+
+    // Returns the nearest remaining city to the point (x, y) other than "exclude", or -1 if there is none
+    public int nearest(double x, double y, int exclude) {
+        bestDistance = Double.POSITIVE_INFINITY;
+        bestCity = -1;
+        if (xs.length > 0) {
+            searchNearest(0, x, y, exclude);
+        }
+        return bestCity;
+    }
+
+    // Returns the remaining city with the lowest index whose squared distance to (x, y) is below the limit,
+    // other than "exclude", or -1 if there is none
+    public int lowestWithin(double x, double y, int exclude, double squaredLimit) {
+        bestCity = -1;
+        if (xs.length > 0) {
+            searchLowest(0, x, y, exclude, squaredLimit);
+        }
+        return bestCity;
+    }
+
+    // Sets the component label of every city for nearestOutside queries
+    public void setComponents(int[] component) {
+        this.component = component;
+        if (nodeComponent == null) {
+            nodeComponent = new int[start.length];
+        }
+        // Children are numbered after their parent, so a backward sweep sees them first
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            if (left[node] == -1) {
+                int label = component[cities[start[node]]];
+                for (int i = start[node] + 1; i < end[node] && label != -1; i++) {
+                    if (component[cities[i]] != label) {
+                        label = -1;
+                    }
+                }
+                nodeComponent[node] = label;
+            } else {
+                int label = nodeComponent[left[node]];
+                nodeComponent[node] = label == nodeComponent[right[node]] ? label : -1;
+            }
+        }
+    }
+
+    // Returns the nearest remaining city with another component label than the given city whose squared distance
+    // is below the limit, or -1 if there is none. Requires setComponents.
+    public int nearestOutside(int city, double squaredLimit) {
+        bestDistance = squaredLimit;
+        bestCity = -1;
+        if (xs.length > 0) {
+            searchOutside(0, xs[city], ys[city], component[city]);
+        }
+        return bestCity;
+    }
+
+    // Sets the city weights for cheapestOutside queries
+    public void setWeights(double[] weight) {
+        this.weight = weight;
+        if (nodeWeight == null) {
+            nodeWeight = new double[start.length];
+        }
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            if (left[node] == -1) {
+                double lowest = Double.POSITIVE_INFINITY;
+                for (int i = start[node]; i < end[node]; i++) {
+                    lowest = Math.min(lowest, weight[cities[i]]);
+                }
+                nodeWeight[node] = lowest;
+            } else {
+                nodeWeight[node] = Math.min(nodeWeight[left[node]], nodeWeight[right[node]]);
+            }
+        }
+    }
+
+    // Returns the remaining city with another component label than the given city for which the distance plus the
+    // city weight is lowest and below the limit, or -1 if there is none. The distances must never be shorter than
+    // the Euclidean distance rounded down, as for the rounded distances. Requires setComponents and setWeights.
+    public int cheapestOutside(int city, DistanceProvider distances, double limit) {
+        bestDistance = limit;
+        bestCity = -1;
+        if (xs.length > 0) {
+            searchCheapest(0, city, distances, component[city]);
+        }
+        return bestCity;
+    }
+
+    // Fills "result" with up to k remaining cities nearest to the given city, closest first, and returns how many were found
+    public int nearest(int city, int k, int[] result) {
+        if (k <= 0 || xs.length == 0) {
+            return 0;
+        }
+        double[] heapDistance = new double[k];
+        int[] heapCity = new int[k];
+        int count = searchKNearest(0, xs[city], ys[city], city, k, heapDistance, heapCity, 0);
+
+        // Pop the max-heap from the back to obtain the cities in ascending distance order
+        for (int size = count; size > 0; size--) {
+            result[size - 1] = heapCity[0];
+            heapCity[0] = heapCity[size - 1];
+            heapDistance[0] = heapDistance[size - 1];
+            siftDown(heapDistance, heapCity, 0, size - 1);
+        }
+        return count;
+    }
+
+    // Builds the k nearest neighbour candidate list of every city, closest first.
+    // Removed cities are skipped, so call this before a construction heuristic starts removing cities.
+    public int[][] candidateLists(int k) {
+        int n = xs.length;
+        int[][] candidates = new int[n][];
+        int[] buffer = new int[Math.max(0, Math.min(k, n - 1))];
+        for (int city = 0; city < n; city++) {
+            int count = nearest(city, buffer.length, buffer);
+            candidates[city] = Arrays.copyOf(buffer, count);
+        }
+        return candidates;
+    }
+
+    private int build(int from, int to, int parentNode) {
+        int node = nodeCount++;
+        start[node] = from;
+        end[node] = to;
+        parent[node] = parentNode;
+        alive[node] = to - from;
+
+        double lowX = Double.POSITIVE_INFINITY, highX = Double.NEGATIVE_INFINITY;
+        double lowY = Double.POSITIVE_INFINITY, highY = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            int city = cities[i];
+            lowX = Math.min(lowX, xs[city]);
+            highX = Math.max(highX, xs[city]);
+            lowY = Math.min(lowY, ys[city]);
+            highY = Math.max(highY, ys[city]);
+        }
+        minX[node] = lowX;
+        maxX[node] = highX;
+        minY[node] = lowY;
+        maxY[node] = highY;
+
+        if (to - from <= LEAF_SIZE) {
+            left[node] = -1;
+            right[node] = -1;
+            for (int i = from; i < to; i++) {
+                leafOf[cities[i]] = node;
+            }
+            return node;
+        }
+
+        // Split the range at the median of the wider dimension
+        double[] axis = highX - lowX >= highY - lowY ? xs : ys;
+        int middle = (from + to) >>> 1;
+        select(axis, from, to - 1, middle);
+        left[node] = build(from, middle, node);
+        right[node] = build(middle, to, node);
+        return node;
+    }
+
+    // Rearranges cities[lo..hi] so that position k holds the city it would hold if the range were sorted by axis
+    private void select(double[] axis, int lo, int hi, int k) {
+        while (hi > lo) {
+            int mid = (lo + hi) >>> 1;
+            // Median of three as pivot
+            if (axis[cities[mid]] < axis[cities[lo]]) swap(lo, mid);
+            if (axis[cities[hi]] < axis[cities[lo]]) swap(lo, hi);
+            if (axis[cities[hi]] < axis[cities[mid]]) swap(mid, hi);
+            double pivot = axis[cities[mid]];
+
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (axis[cities[i]] < pivot) i++;
+                while (axis[cities[j]] > pivot) j--;
+                if (i <= j) {
+                    swap(i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        int temp = cities[i];
+        cities[i] = cities[j];
+        cities[j] = temp;
+    }
+
+    private void searchNearest(int node, double x, double y, int exclude) {
+        if (alive[node] == 0 || boxDistance(node, x, y) > bestDistance) {
+            return;
+        }
+        if (left[node] == -1) {
+            for (int i = start[node]; i < end[node]; i++) {
+                int city = cities[i];
+                if (city == exclude || removed[city]) continue;
+                double distance = squaredDistance(city, x, y);
+                if (distance < bestDistance || (distance == bestDistance && city < bestCity)) {
+                    bestDistance = distance;
+                    bestCity = city;
+                }
+            }
+            return;
+        }
+        // Descend into the closer child first so the other one is more likely to be pruned
+        int first = left[node], second = right[node];
+        if (boxDistance(second, x, y) < boxDistance(first, x, y)) {
+            first = right[node];
+            second = left[node];
+        }
+        searchNearest(first, x, y, exclude);
+        searchNearest(second, x, y, exclude);
+    }
+
+    private void searchOutside(int node, double x, double y, int label) {
+        if (alive[node] == 0 || nodeComponent[node] == label || boxDistance(node, x, y) >= bestDistance) {
+            return;
+        }
+        if (left[node] == -1) {
+            for (int i = start[node]; i < end[node]; i++) {
+                int city = cities[i];
+                if (component[city] == label || removed[city]) continue;
+                double distance = squaredDistance(city, x, y);
+                if (distance < bestDistance || (distance == bestDistance && city < bestCity)) {
+                    bestDistance = distance;
+                    bestCity = city;
+                }
+            }
+            return;
+        }
+        int first = left[node], second = right[node];
+        if (boxDistance(second, x, y) < boxDistance(first, x, y)) {
+            first = right[node];
+            second = left[node];
+        }
+        searchOutside(first, x, y, label);
+        searchOutside(second, x, y, label);
+    }
+
+    private void searchCheapest(int node, int from, DistanceProvider distances, int label) {
+        if (alive[node] == 0 || nodeComponent[node] == label
+                || cheapestBelow(node, from) >= bestDistance) {
+            return;
+        }
+        if (left[node] == -1) {
+            for (int i = start[node]; i < end[node]; i++) {
+                int city = cities[i];
+                if (component[city] == label || removed[city] || weight[city] >= bestDistance) continue;
+                double cost = distances.distance(from, city) + weight[city];
+                if (cost < bestDistance || (cost == bestDistance && city < bestCity)) {
+                    bestDistance = cost;
+                    bestCity = city;
+                }
+            }
+            return;
+        }
+        int first = left[node], second = right[node];
+        if (cheapestBelow(second, from) < cheapestBelow(first, from)) {
+            first = right[node];
+            second = left[node];
+        }
+        searchCheapest(first, from, distances, label);
+        searchCheapest(second, from, distances, label);
+    }
+
+    // Lower bound on distance plus weight of the cities below a node
+    private double cheapestBelow(int node, int from) {
+        return Math.floor(Math.sqrt(boxDistance(node, xs[from], ys[from]))) + nodeWeight[node];
+    }
+
+    private void searchLowest(int node, double x, double y, int exclude, double squaredLimit) {
+        if (alive[node] == 0 || boxDistance(node, x, y) >= squaredLimit) {
+            return;
+        }
+        if (left[node] == -1) {
+            for (int i = start[node]; i < end[node]; i++) {
+                int city = cities[i];
+                if (city == exclude || removed[city] || (bestCity != -1 && city > bestCity)) continue;
+                if (squaredDistance(city, x, y) < squaredLimit) {
+                    bestCity = city;
+                }
+            }
+            return;
+        }
+        searchLowest(left[node], x, y, exclude, squaredLimit);
+        searchLowest(right[node], x, y, exclude, squaredLimit);
+    }
+
+    private int searchKNearest(int node, double x, double y, int exclude, int k,
+                               double[] heapDistance, int[] heapCity, int count) {
+        if (alive[node] == 0 || (count == k && boxDistance(node, x, y) > heapDistance[0])) {
+            return count;
+        }
+        if (left[node] == -1) {
+            for (int i = start[node]; i < end[node]; i++) {
+                int city = cities[i];
+                if (city == exclude || removed[city]) continue;
+                double distance = squaredDistance(city, x, y);
+                if (count < k) {
+                    // Append and sift up
+                    int child = count++;
+                    while (child > 0) {
+                        int up = (child - 1) >>> 1;
+                        if (!farther(distance, city, heapDistance[up], heapCity[up])) break;
+                        heapDistance[child] = heapDistance[up];
+                        heapCity[child] = heapCity[up];
+                        child = up;
+                    }
+                    heapDistance[child] = distance;
+                    heapCity[child] = city;
+                } else if (farther(heapDistance[0], heapCity[0], distance, city)) {
+                    heapDistance[0] = distance;
+                    heapCity[0] = city;
+                    siftDown(heapDistance, heapCity, 0, count);
+                }
+            }
+            return count;
+        }
+        int first = left[node], second = right[node];
+        if (boxDistance(second, x, y) < boxDistance(first, x, y)) {
+            first = right[node];
+            second = left[node];
+        }
+        count = searchKNearest(first, x, y, exclude, k, heapDistance, heapCity, count);
+        return searchKNearest(second, x, y, exclude, k, heapDistance, heapCity, count);
+    }
+
+    // Restores the max-heap property below position i of a heap with the given size
+    private static void siftDown(double[] heapDistance, int[] heapCity, int i, int size) {
+        double distance = heapDistance[i];
+        int city = heapCity[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && farther(heapDistance[child + 1], heapCity[child + 1], heapDistance[child], heapCity[child])) {
+                child++;
+            }
+            if (!farther(heapDistance[child], heapCity[child], distance, city)) break;
+            heapDistance[i] = heapDistance[child];
+            heapCity[i] = heapCity[child];
+            i = child;
+        }
+        heapDistance[i] = distance;
+        heapCity[i] = city;
+    }
+
+    // Orders candidates by distance, then by city index
+    private static boolean farther(double distance1, int city1, double distance2, int city2) {
+        return distance1 > distance2 || (distance1 == distance2 && city1 > city2);
+    }
+
+    private double squaredDistance(int city, double x, double y) {
+        double dx = xs[city] - x;
+        double dy = ys[city] - y;
+        return dx * dx + dy * dy;
+    }
+
+    // Squared distance from (x, y) to the bounding box of a node, 0 if the point lies inside it
+    private double boxDistance(int node, double x, double y) {
+        double dx = x < minX[node] ? minX[node] - x : (x > maxX[node] ? x - maxX[node] : 0);
+        double dy = y < minY[node] ? minY[node] - y : (y > maxY[node] ? y - maxY[node] : 0);
+        return dx * dx + dy * dy;
+    }
+}
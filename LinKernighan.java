@@ -0,0 +1,209 @@
+// Lin-Kernighan style improvement of a single tour. Starting from an edge (t1, t2) it builds a sequential k-opt
+// move as a chain of 2-opt moves: each step adds an edge from the free end t2 to a candidate neighbour t3, removes
+// an edge (t3, t4) and closes the tour with (t4, t1), which becomes the edge to break in the next step. The chain
+// goes as deep as the cumulative gain stays positive and is then rolled back to the step with the best closed tour.
+// The first two levels try several alternatives before giving up. Edges removed in a chain are never added again
+// and added edges are never removed again. Cities are scheduled with don't-look bits and the search stops when no
+// chain improves or the deadline passes.
+public class LinKernighan {
+
+    private static final int MAX_DEPTH = 12;
+    private static final int[] BREADTH = {5, 3}; // Alternatives tried on the first levels, deeper levels are greedy
+
+    private final Tour tour;
+    private final DistanceProvider distances;
+    private final int[][] candidates;
+
+    // Applied 2-opt moves of the current chain as quadruples (t2, t1, t3, t4)
+    private final int[] journal = new int[4 * MAX_DEPTH];
+    private int journalSize;
+
+    // Edges removed and added by the current chain, indexed by level
+    private final int[] removedFrom = new int[MAX_DEPTH + 1];
+    private final int[] removedTo = new int[MAX_DEPTH + 1];
+    private final int[] addedFrom = new int[MAX_DEPTH];
+    private final int[] addedTo = new int[MAX_DEPTH];
+
+    // Alternatives for t3 on every level and the gain they promise
+    private final int[][] alternatives = new int[MAX_DEPTH + 1][BREADTH[0]];
+    private final double[][] alternativeValues = new double[MAX_DEPTH + 1][BREADTH[0]];
+
+    private double bestGain;
+    private int bestJournalSize;
+
+    private LinKernighan(Tour tour, DistanceProvider distances, int[][] candidates) {
+        this.tour = tour;
+        this.distances = distances;
+        this.candidates = candidates;
+    }
+
+    // Improves the tour in place until no chain improves or the deadline (System.nanoTime) passes.
+    // Returns the number of improving chains applied.
+    public static int optimize(Tour tour, DistanceProvider distances, int[][] candidates, long deadline) {
+        return new LinKernighan(tour, distances, candidates).run(deadline);
+    }
+
+    // Improves the path with Lin-Kernighan moves and returns the improved path
+    public static int[] optimize(int[] path, boolean closed, DistanceProvider distances, int[][] candidates, long deadline) {
+        Tour tour = new Tour(path, distances.size(), closed);
+        optimize(tour, distances, candidates, deadline);
+        return tour.toArray();
+    }
+
+    private int run(long deadline) {
+        int n = tour.size();
+        if (n < 6) {
+            return 0;
+        }
+        // Circular queue of the cities whose don't-look bit is off, every city is queued at most once
+        int[] queue = new int[n];
+        int head = 0, size = 0;
+        boolean[] queued = new boolean[distances.size()];
+        for (int i = 0; i < n; i++) {
+            int city = tour.city(i);
+            queue[size++] = city;
+            queued[city] = true;
+        }
+
+        int improvements = 0;
+        while (size > 0 && System.nanoTime() < deadline) {
+            int t1 = queue[head];
+            head = (head + 1) % n;
+            size--;
+            queued[t1] = false;
+            if (improveFrom(t1)) {
+                improvements++;
+                // Wake up every city that lost or gained an edge
+                for (int k = 0; k < journalSize; k++) {
+                    int city = journal[k];
+                    if (!queued[city]) {
+                        queue[(head + size) % n] = city;
+                        size++;
+                        queued[city] = true;
+                    }
+                }
+            }
+        }
+        return improvements;
+    }
+
+    private boolean improveFrom(int t1) {
+        for (int side = 0; side < 2; side++) {
+            int t2 = side == 0 ? tour.next(t1) : tour.prev(t1);
+            if (tour.isFixed(t1, t2)) continue;
+            journalSize = 0;
+            bestGain = DistanceProvider.EPSILON;
+            bestJournalSize = 0;
+            removedFrom[0] = t1;
+            removedTo[0] = t2;
+            if (step(1, distances.distance(t1, t2), t1, t2)) {
+                // Undo the part of the chain that went past the best closed tour
+                while (journalSize > bestJournalSize) {
+                    undoLast();
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Extends the chain whose free end is t2 and whose cumulative gain (without the closing edge) is "gain".
+    // Returns true once a closed tour better than the original one has been found; the moves stay applied.
+    private boolean step(int level, double gain, int t1, int t2) {
+        int breadth = level <= BREADTH.length ? BREADTH[level - 1] : 1;
+        boolean t2AfterT1 = tour.next(t1) == t2;
+
+        // Pick the most promising t3 by the gain after also removing (t3, t4)
+        int[] bestT3 = alternatives[level];
+        double[] bestValue = alternativeValues[level];
+        int count = 0;
+        for (int t3 : candidates[t2]) {
+            if (!tour.contains(t3)) continue;
+            double g1 = gain - distances.distance(t2, t3);
+            if (g1 <= 0) break; // Candidates are sorted, no later one keeps the gain positive
+            if (t3 == t1 || t3 == tour.next(t2) || t3 == tour.prev(t2) || wasRemoved(t2, t3, level)) continue;
+            // t4 lies on the same side of t3 as t1 lies of t2, so that closing with (t4, t1) gives a tour
+            int t4 = t2AfterT1 ? tour.prev(t3) : tour.next(t3);
+            if (t4 == t1 || t4 == t2 || tour.isFixed(t3, t4) || wasAdded(t3, t4, level)) continue;
+            double value = g1 + distances.distance(t3, t4);
+
+            // Insert into the small sorted list of alternatives
+            int position = count < breadth ? count++ : breadth;
+            while (position > 0 && bestValue[position - 1] < value) {
+                if (position < breadth) {
+                    bestT3[position] = bestT3[position - 1];
+                    bestValue[position] = bestValue[position - 1];
+                }
+                position--;
+            }
+            if (position < breadth) {
+                bestT3[position] = t3;
+                bestValue[position] = value;
+            }
+        }
+
+        for (int k = 0; k < count; k++) {
+            int t3 = bestT3[k];
+            // Undoing an alternative restores the same cycle, but possibly with the array orientation flipped
+            int t4 = tour.next(t1) == t2 ? tour.prev(t3) : tour.next(t3);
+            double g1 = gain - distances.distance(t2, t3);
+
+            // Replace (t2, t1) and (t3, t4) with (t2, t3) and (t1, t4)
+            tour.twoOptMove(t2, t1, t3, t4);
+            journal[journalSize++] = t2;
+            journal[journalSize++] = t1;
+            journal[journalSize++] = t3;
+            journal[journalSize++] = t4;
+            addedFrom[level - 1] = t2;
+            addedTo[level - 1] = t3;
+            removedFrom[level] = t3;
+            removedTo[level] = t4;
+
+            double newGain = g1 + distances.distance(t3, t4);
+            double closedGain = newGain - distances.distance(t4, t1);
+            if (closedGain > bestGain) {
+                bestGain = closedGain;
+                bestJournalSize = journalSize;
+            }
+            if (level < MAX_DEPTH && step(level + 1, newGain, t1, t4)) {
+                return true;
+            }
+            if (bestJournalSize > 0) {
+                return true;
+            }
+            undoLast();
+        }
+        return false;
+    }
+
+    // Reverts the last 2-opt move of the chain
+    private void undoLast() {
+        journalSize -= 4;
+        int t2 = journal[journalSize];
+        int t1 = journal[journalSize + 1];
+        int t3 = journal[journalSize + 2];
+        int t4 = journal[journalSize + 3];
+        // Replace (t2, t3) and (t1, t4) with (t2, t1) and (t3, t4)
+        tour.twoOptMove(t2, t3, t1, t4);
+    }
+
+    // True if the edge (a, b) was removed on one of the first levels of the chain
+    private boolean wasRemoved(int a, int b, int level) {
+        for (int k = 0; k < level; k++) {
+            if ((removedFrom[k] == a && removedTo[k] == b) || (removedFrom[k] == b && removedTo[k] == a)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // True if the edge (a, b) was added on one of the first levels of the chain
+    private boolean wasAdded(int a, int b, int level) {
+        for (int k = 0; k < level - 1; k++) {
+            if ((addedFrom[k] == a && addedTo[k] == b) || (addedFrom[k] == b && addedTo[k] == a)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
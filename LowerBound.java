@@ -0,0 +1,353 @@
+import java.util.Arrays;
+
+// Held-Karp lower bound on the total cost of two open paths that together visit every city once, for the rounded
+// distances of TwoTSPNearestNeighbor. It tells how far a solution can at most be from the optimum.
+// Joining the four path ends to a dummy depot turns the two paths into a closed structure in which every city has
+// degree two, so the 1-tree bound of Held and Karp carries over: the paths without the depot form a spanning forest
+// with two trees, which costs at least as much as a minimum spanning tree without its heaviest edge. A penalty pi of
+// each city is added to every edge at the city, also to the depot edges, and 2 * sum(pi) is subtracted again, which
+// keeps the bound valid for any penalties. Subgradient optimization raises the penalties of cities with more than two
+// edges and lowers those of leaves, which pushes the forest towards paths and the bound upwards.
+// The iterations compute the trees by Prim like ChristofidesAlgorithm.findMST, but on the sparse graph of the nearest
+// candidates, so that one iteration takes milliseconds even for 50,000 cities. That tree can miss cheaper edges
+// outside the graph and overestimate, so the bound itself is computed once more for the best penalties with the
+// exact tree over all pairs, built like EuclideanMst by Boruvka rounds with k-d tree queries.
+public class LowerBound {
+
+    private static final int GRAPH_NEIGHBORS = 8; // Candidate neighbours per city in the sparse graph
+    private static final int STALL_LIMIT = 10;    // Iterations without a better value before the step halves
+    private static final double MIN_SCALE = 1e-3; // Step factor below which the iterations stop
+
+    private LowerBound() {
+    }
+
+    // Returns a lower bound on the total cost of any solution. upperBound is the cost of a known solution and scales
+    // the subgradient steps; the iterations stop after the given count, at the deadline (System.nanoTime), once the
+    // steps become too small or once the sparse value is within the stop fraction of the upper bound.
+    // The depot construction needs a city on each path, so there must be at least two cities.
+    public static long compute(IntDistanceKernel distances, double upperBound, int iterations, long deadline,
+                               double stopGap) {
+        int n = distances.size();
+        if (n < 2) {
+            throw new IllegalArgumentException("A lower bound for two salesmen needs at least 2 cities, got " + n);
+        }
+        if (n == 2) {
+            return 0; // Each salesman stays at one city
+        }
+        // Cities in Hilbert curve order keep graph neighbours close in memory; the bound does not depend on numbering
+        int[] order = HilbertCurve.order(distances.xs, distances.ys);
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = distances.xs[order[i]];
+            ys[i] = distances.ys[order[i]];
+        }
+        IntDistanceKernel local = new IntDistanceKernel(xs, ys);
+        KdTree index = KdTree.of(xs, ys);
+        double[] penalty = new double[n];
+        double[] bestPenalty = new double[n];
+        int[] degree = new int[n];
+        SpanningForest forest = new SpanningForest(local, index.candidateLists(GRAPH_NEIGHBORS), penalty, degree);
+        double best = Double.NEGATIVE_INFINITY;
+        double scale = 2; // Polyak step factor, halved whenever the value stalls
+        int stalled = 0;
+
+        for (int iteration = 0; iteration < iterations && System.nanoTime() < deadline; iteration++) {
+            double value = forest.sparseValue() + endpoints(penalty, degree);
+            if (value > best + 1e-9) {
+                best = value;
+                System.arraycopy(penalty, 0, bestPenalty, 0, n);
+                stalled = 0;
+            } else if (++stalled >= STALL_LIMIT) {
+                scale /= 2;
+                stalled = 0;
+            }
+            if (upperBound - best <= stopGap * best || scale < MIN_SCALE) {
+                break;
+            }
+            // Subgradient: degree - 2 of every city, including the depot edges
+            long norm = 0;
+            for (int i = 0; i < n; i++) {
+                int g = degree[i] - 2;
+                norm += (long) g * g;
+            }
+            if (norm == 0) {
+                break; // The forest is made of two paths, the penalties cannot improve
+            }
+            double step = scale * Math.max(upperBound - value, 1e-3 * upperBound) / norm;
+            for (int i = 0; i < n; i++) {
+                penalty[i] += step * (degree[i] - 2);
+            }
+        }
+
+        System.arraycopy(bestPenalty, 0, penalty, 0, n);
+        return (long) Math.ceil(forest.exactValue(index) + endpoints(penalty, degree) - 1e-6);
+    }
+
+    // Weight of the minimum spanning forest with two trees for the edge weights distance + pi[a] + pi[b], less
+    // 2 * sum(pi), computed over all pairs like the final value of compute. Needs at least two cities.
+    public static double exactForest(IntDistanceKernel distances, double[] penalty) {
+        KdTree index = KdTree.of(distances.xs, distances.ys);
+        SpanningForest forest = new SpanningForest(distances, index.candidateLists(GRAPH_NEIGHBORS), penalty,
+                new int[distances.size()]);
+        return forest.exactValue(index);
+    }
+
+    // Penalty cost of the depot edges, which join the four path ends to the depot. A path of a single city has both
+    // its ends there, so the cheapest choice is twice the city with the lowest penalty and twice the one after it.
+    // Adds the depot edges to the degrees.
+    private static double endpoints(double[] penalty, int[] degree) {
+        int first = -1, second = -1;
+        for (int i = 0; i < penalty.length; i++) {
+            if (first == -1 || penalty[i] < penalty[first]) {
+                second = first;
+                first = i;
+            } else if (second == -1 || penalty[i] < penalty[second]) {
+                second = i;
+            }
+        }
+        degree[first] += 2;
+        degree[second] += 2;
+        return 2 * (penalty[first] + penalty[second]);
+    }
+
+    // Minimum spanning trees for the penalized edge weights distance + pi[a] + pi[b]. The undirected graph of the
+    // first candidates of every city is kept in flat arrays with its edge lengths, as only the penalties change.
+    private static final class SpanningForest {
+        private final int n;
+        private final IntDistanceKernel distances;
+        private final int[] first;     // Edges of city a are neighbour[first[a]] .. neighbour[first[a + 1] - 1]
+        private final int[] neighbour;
+        private final int[] length;
+        private final int[] radius;    // Length of the last candidate edge: no edge outside the graph is shorter
+        private final double[] penalty;
+        private final int[] degree;
+        private final boolean[] inTree;
+        private final double[] key;
+        private final int[] parent;
+        private final int[] heap;      // Cities ordered by key
+        private final int[] heapIndex; // Position of every city in heap, -1 if it is not there
+        private int heapSize;
+
+        SpanningForest(IntDistanceKernel distances, int[][] candidates, double[] penalty, int[] degree) {
+            this.n = candidates.length;
+            this.distances = distances;
+            this.penalty = penalty;
+            this.degree = degree;
+            this.inTree = new boolean[n];
+            this.key = new double[n];
+            this.parent = new int[n];
+            this.heap = new int[n];
+            this.heapIndex = new int[n];
+            Arrays.fill(heapIndex, -1);
+
+            // Every candidate edge once in both directions: an edge listed by both cities is taken from the lower one
+            this.first = new int[n + 1];
+            for (int a = 0; a < n; a++) {
+                for (int b : candidates[a]) {
+                    if (b < a && contains(candidates[b], a)) continue;
+                    first[a + 1]++;
+                    first[b + 1]++;
+                }
+            }
+            for (int a = 0; a < n; a++) {
+                first[a + 1] += first[a];
+            }
+            this.neighbour = new int[first[n]];
+            this.length = new int[first[n]];
+            int[] fill = Arrays.copyOf(first, n);
+            this.radius = new int[n];
+            for (int a = 0; a < n; a++) {
+                for (int b : candidates[a]) {
+                    if (b < a && contains(candidates[b], a)) continue;
+                    int d = distances.rounded(a, b);
+                    neighbour[fill[a]] = b;
+                    length[fill[a]++] = d;
+                    neighbour[fill[b]] = a;
+                    length[fill[b]++] = d;
+                }
+                // Rounding keeps the order of the exact distances, so no other city is closer after rounding
+                int[] list = candidates[a];
+                radius[a] = list.length == 0 ? 0 : distances.rounded(a, list[list.length - 1]);
+            }
+        }
+
+        // Prim on the sparse graph, without the heaviest tree edge. Fills in the degrees of the forest and returns its
+        // penalized weight minus twice the penalty sum. A graph that falls apart gives a forest with more trees.
+        double sparseValue() {
+            Arrays.fill(inTree, false);
+            Arrays.fill(key, Double.POSITIVE_INFINITY);
+            Arrays.fill(degree, 0);
+            double total = 0;
+            double heaviest = Double.NEGATIVE_INFINITY;
+            int heaviestCity = -1; // City whose tree edge to its parent is the heaviest
+            for (int root = 0; root < n; root++) {
+                if (inTree[root]) continue;
+                parent[root] = -1;
+                decrease(root, 0);
+                while (heapSize > 0) {
+                    int u = pop();
+                    inTree[u] = true;
+                    if (parent[u] != -1) {
+                        total += key[u];
+                        degree[u]++;
+                        degree[parent[u]]++;
+                        if (key[u] > heaviest) {
+                            heaviest = key[u];
+                            heaviestCity = u;
+                        }
+                    }
+                    double pu = penalty[u];
+                    for (int e = first[u]; e < first[u + 1]; e++) {
+                        int v = neighbour[e];
+                        double weight = length[e] + pu + penalty[v];
+                        if (!inTree[v] && weight < key[v]) {
+                            parent[v] = u;
+                            decrease(v, weight);
+                        }
+                    }
+                }
+            }
+            degree[heaviestCity]--;
+            degree[parent[heaviestCity]]--;
+            return total - heaviest - 2 * penaltySum();
+        }
+
+        // Minimum spanning tree over all pairs of cities, without its heaviest edge, minus twice the penalty sum.
+        // Every Boruvka round joins each component to its cheapest outside city: first among the graph edges, then by
+        // a k-d tree query from each city whose edges outside the graph might still be cheaper.
+        double exactValue(KdTree index) {
+            int[] root = new int[n];
+            for (int i = 0; i < n; i++) {
+                root[i] = i;
+            }
+            double lowestPenalty = Double.POSITIVE_INFINITY;
+            for (double p : penalty) {
+                lowestPenalty = Math.min(lowestPenalty, p);
+            }
+            index.setWeights(penalty);
+            int[] component = new int[n];
+            double[] bestWeight = new double[n];
+            int[] bestFrom = new int[n];
+            int[] bestTo = new int[n];
+            double total = 0;
+            double heaviest = Double.NEGATIVE_INFINITY;
+            for (int treeSize = 0; treeSize < n - 1; ) {
+                for (int i = 0; i < n; i++) {
+                    component[i] = find(root, i);
+                    bestWeight[i] = Double.POSITIVE_INFINITY;
+                }
+                for (int a = 0; a < n; a++) {
+                    int c = component[a];
+                    for (int e = first[a]; e < first[a + 1]; e++) {
+                        int b = neighbour[e];
+                        double weight = length[e] + penalty[a] + penalty[b];
+                        if (component[b] != c && weight < bestWeight[c]) {
+                            bestWeight[c] = weight;
+                            bestFrom[c] = a;
+                            bestTo[c] = b;
+                        }
+                    }
+                }
+                index.setComponents(component);
+                for (int a = 0; a < n; a++) {
+                    int c = component[a];
+                    if (radius[a] + penalty[a] + lowestPenalty >= bestWeight[c]) continue;
+                    int b = index.cheapestOutside(a, distances, bestWeight[c] - penalty[a]);
+                    if (b != -1) {
+                        bestWeight[c] = distances.rounded(a, b) + penalty[a] + penalty[b];
+                        bestFrom[c] = a;
+                        bestTo[c] = b;
+                    }
+                }
+                for (int c = 0; c < n; c++) {
+                    if (component[c] == c && bestWeight[c] != Double.POSITIVE_INFINITY
+                            && union(root, bestFrom[c], bestTo[c])) {
+                        total += bestWeight[c];
+                        heaviest = Math.max(heaviest, bestWeight[c]);
+                        treeSize++;
+                    }
+                }
+            }
+            return total - heaviest - 2 * penaltySum();
+        }
+
+        private double penaltySum() {
+            double sum = 0;
+            for (double p : penalty) {
+                sum += p;
+            }
+            return sum;
+        }
+
+        // Lowers the key of a city, adding it to the heap if it is not there yet
+        private void decrease(int city, double weight) {
+            key[city] = weight;
+            int i = heapIndex[city];
+            if (i == -1) {
+                i = heapSize++;
+            }
+            while (i > 0) {
+                int up = (i - 1) / 2;
+                if (key[heap[up]] <= weight) break;
+                heap[i] = heap[up];
+                heapIndex[heap[i]] = i;
+                i = up;
+            }
+            heap[i] = city;
+            heapIndex[city] = i;
+        }
+
+        private int pop() {
+            int top = heap[0];
+            heapIndex[top] = -1;
+            int city = heap[--heapSize];
+            if (heapSize == 0) {
+                return top;
+            }
+            double weight = key[city];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= heapSize) break;
+                if (child + 1 < heapSize && key[heap[child + 1]] < key[heap[child]]) child++;
+                if (key[heap[child]] >= weight) break;
+                heap[i] = heap[child];
+                heapIndex[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = city;
+            heapIndex[city] = i;
+            return top;
+        }
+
+        private static boolean contains(int[] list, int city) {
+            for (int other : list) {
+                if (other == city) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Union-find root with path halving
+        private static int find(int[] root, int i) {
+            while (root[i] != i) {
+                root[i] = root[root[i]];
+                i = root[i];
+            }
+            return i;
+        }
+
+        // Joins the sets of a and b, returns false if they already were one set
+        private static boolean union(int[] root, int a, int b) {
+            a = find(root, a);
+            b = find(root, b);
+            if (a == b) {
+                return false;
+            }
+            root[b] = a;
+            return true;
+        }
+    }
+}
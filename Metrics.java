@@ -0,0 +1,187 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Per-phase measurements of a solver run: wall time, improvement passes, moves evaluated and applied, and the cost
+// after every pass. The report is written as JSON, or as CSV when the file name ends with .csv, and every finished
+// pass or phase can also be printed as a progress line.
+// A disabled instance hands out Phase.NONE, whose methods return at once, and callers only compute costs for the
+// report when enabled() says so, so a run without metrics pays nothing beyond a few branches per phase.
+public class Metrics {
+
+    private static final Metrics DISABLED = new Metrics(false, null);
+
+    private final boolean enabled;
+    private final PrintStream progress; // Destination of progress lines, null for none
+    private final long start = System.nanoTime();
+    private final List<Phase> phases = new ArrayList<>();
+
+    private Metrics(boolean enabled, PrintStream progress) {
+        this.enabled = enabled;
+        this.progress = progress;
+    }
+
+    // Metrics that are recorded, printing progress lines to the given stream unless it is null
+    public static Metrics recording(PrintStream progress) {
+        return new Metrics(true, progress);
+    }
+
+    public static Metrics disabled() {
+        return DISABLED;
+    }
+
+    // Metrics for the given options: disabled unless a report file or progress lines are asked for
+    public static Metrics of(SolverOptions options) {
+        if (options.metricsFile == null && !options.progress) {
+            return DISABLED;
+        }
+        return recording(options.progress ? System.err : null);
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    // Starts timing a phase
+    public Phase begin(String name) {
+        if (!enabled) {
+            return Phase.NONE;
+        }
+        Phase phase = new Phase(this, name);
+        synchronized (phases) {
+            phases.add(phase);
+        }
+        return phase;
+    }
+
+    // Writes the report, as CSV if the file name ends with .csv and as JSON otherwise
+    public void write(String file) throws IOException {
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(file.endsWith(".csv") ? toCsv() : toJson());
+        }
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"totalSeconds\": ").append(seconds(System.nanoTime() - start)).append(",\n  \"phases\": [");
+        List<Phase> snapshot = snapshot();
+        for (int i = 0; i < snapshot.size(); i++) {
+            Phase phase = snapshot.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"name\": \"").append(phase.name.replace("\"", "\\\""))
+                    .append("\", \"seconds\": ").append(seconds(phase.nanos()))
+                    .append(", \"passes\": ").append(phase.passes)
+                    .append(", \"movesEvaluated\": ").append(phase.evaluated)
+                    .append(", \"movesApplied\": ").append(phase.applied)
+                    .append(", \"costs\": [");
+            for (int k = 0; k < phase.costCount; k++) {
+                json.append(k == 0 ? "" : ", ").append(number(phase.costs[k]));
+            }
+            json.append("]}");
+        }
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+
+    public String toCsv() {
+        StringBuilder csv = new StringBuilder("phase,seconds,passes,moves_evaluated,moves_applied,final_cost,costs\n");
+        for (Phase phase : snapshot()) {
+            csv.append(phase.name).append(',').append(seconds(phase.nanos())).append(',').append(phase.passes)
+                    .append(',').append(phase.evaluated).append(',').append(phase.applied).append(',')
+                    .append(phase.costCount > 0 ? number(phase.costs[phase.costCount - 1]) : "").append(',');
+            for (int k = 0; k < phase.costCount; k++) {
+                csv.append(k == 0 ? "" : ";").append(number(phase.costs[k]));
+            }
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
+
+    private List<Phase> snapshot() {
+        synchronized (phases) {
+            return new ArrayList<>(phases);
+        }
+    }
+
+    private void print(String line) {
+        if (progress != null) {
+            progress.printf(Locale.ROOT, "[%8.3f s] %s%n", (System.nanoTime() - start) / 1e9, line);
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.6f", nanos / 1e9);
+    }
+
+    private static String number(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15
+                ? Long.toString((long) value) : String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    // Measurements of one phase. A phase is used by one thread at a time.
+    public static final class Phase {
+
+        // Phase of disabled metrics, ignores everything
+        public static final Phase NONE = new Phase(null, "none");
+
+        private final Metrics owner;
+        private final String name;
+        private final long start = System.nanoTime();
+        private long end = -1;
+        private int passes;
+        private long evaluated;
+        private long applied;
+        private double[] costs = new double[0];
+        private int costCount;
+
+        private Phase(Metrics owner, String name) {
+            this.owner = owner;
+            this.name = name;
+        }
+
+        public boolean enabled() {
+            return owner != null;
+        }
+
+        // Records a finished improvement pass and the cost after it
+        public void pass(long movesEvaluated, long movesApplied, double cost) {
+            if (owner == null) {
+                return;
+            }
+            passes++;
+            evaluated += movesEvaluated;
+            applied += movesApplied;
+            addCost(cost);
+            owner.print(String.format(Locale.ROOT, "%s pass %d: cost %s, %d of %d moves applied",
+                    name, passes, number(cost), movesApplied, movesEvaluated));
+        }
+
+        // Ends the phase; a cost that is NaN is left out of the trajectory
+        public void end(double cost) {
+            if (owner == null) {
+                return;
+            }
+            end = System.nanoTime();
+            if (!Double.isNaN(cost) && (costCount == 0 || costs[costCount - 1] != cost)) {
+                addCost(cost);
+            }
+            owner.print(String.format(Locale.ROOT, "%s done in %.3f s%s", name, nanos() / 1e9,
+                    costCount > 0 ? ", cost " + number(costs[costCount - 1]) : ""));
+        }
+
+        private long nanos() {
+            return (end == -1 ? System.nanoTime() : end) - start;
+        }
+
+        private void addCost(double cost) {
+            if (costCount == costs.length) {
+                costs = Arrays.copyOf(costs, Math.max(8, 2 * costCount));
+            }
+            costs[costCount++] = cost;
+        }
+    }
+}
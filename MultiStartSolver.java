@@ -0,0 +1,110 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Runs many independent starts of a construction + improvement pipeline on a work-stealing pool and keeps the best
+// pair of paths. Every start gets its own random generator derived from the seed and the start index, and ties are
+// broken by the lower start index, so a run that completes all starts is reproducible for a given seed.
+// Starts that have not begun when the deadline passes are skipped; start 0 always runs.
+public class MultiStartSolver {
+
+    // One start of the pipeline, returning the paths of both salesmen
+    public interface Start {
+        int[][] run(int index, SplittableRandom random);
+    }
+
+    // Cost of a pair of paths, lower is better
+    public interface Cost {
+        double of(int[][] paths);
+    }
+
+    private MultiStartSolver() {
+    }
+
+    public static int[][] solve(Start start, Cost cost, int starts, int threads, long deadline, long seed) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new Starts(start, cost, 0, starts, deadline, seed)).paths;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Applies random segment reversals to a path. The first city stays in place, and for open paths the last city
+    // too, so the start cities of the salesmen are not changed by the perturbation.
+    public static void perturb(int[] path, boolean closed, int kicks, SplittableRandom random) {
+        int low = 1;
+        int high = closed ? path.length - 1 : path.length - 2;
+        if (high - low < 1) {
+            return;
+        }
+        for (int kick = 0; kick < kicks; kick++) {
+            int i = random.nextInt(low, high);
+            int j = Math.min(high, i + 1 + random.nextInt(50));
+            while (i < j) {
+                int temp = path[i];
+                path[i++] = path[j];
+                path[j--] = temp;
+            }
+        }
+    }
+
+    // Best result of a range of starts
+    private static final class Result {
+        final int[][] paths;
+        final double cost;
+        final int index;
+
+        Result(int[][] paths, double cost, int index) {
+            this.paths = paths;
+            this.cost = cost;
+            this.index = index;
+        }
+
+        Result better(Result other) {
+            if (other == null) return this;
+            if (other.cost < cost || (other.cost == cost && other.index < index)) return other;
+            return this;
+        }
+    }
+
+    // Splits the range of starts in halves until single starts remain
+    private static final class Starts extends RecursiveTask<Result> {
+        private static final long serialVersionUID = 1L;
+
+        private final Start start;
+        private final Cost cost;
+        private final int from;
+        private final int to;
+        private final long deadline;
+        private final long seed;
+
+        Starts(Start start, Cost cost, int from, int to, long deadline, long seed) {
+            this.start = start;
+            this.cost = cost;
+            this.from = from;
+            this.to = to;
+            this.deadline = deadline;
+            this.seed = seed;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from == 1) {
+                if (from > 0 && System.nanoTime() > deadline) {
+                    return null;
+                }
+                SplittableRandom random = new SplittableRandom(seed + 0x9E3779B97F4A7C15L * from);
+                int[][] paths = start.run(from, random);
+                return new Result(paths, cost.of(paths), from);
+            }
+            int middle = (from + to) >>> 1;
+            Starts left = new Starts(start, cost, from, middle, deadline, seed);
+            Starts right = new Starts(start, cost, middle, to, deadline, seed);
+            right.fork();
+            Result best = left.compute();
+            Result other = right.join();
+            return best == null ? other : best.better(other);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+import java.util.Arrays;
+
+// 2-opt that only tries moves towards each city's nearest neighbours and uses don't-look bits.
+// A city is only examined again after one of its tour edges changed, so converged regions of the tour are skipped.
+// Paths are either closed tours or open paths whose first and last city stay fixed, like the exhaustive versions.
+// An instance keeps its queue between runs, so a search that only disturbs a few cities (see IteratedLocalSearch)
+// re-optimizes around them alone, and it can journal the applied moves to roll them back.
+public class NeighborListTwoOpt {
+
+    private final Tour tour;
+    private final DistanceProvider distances;
+    private final int[][] candidates;
+
+    // Circular queue of the cities whose don't-look bit is off, every city is queued at most once
+    private final int[] queue;
+    private final boolean[] queued;
+    private int head;
+    private int size;
+
+    // Applied moves as quadruples (a, b, c, d), only recorded while journaling is on
+    private boolean journaling;
+    private int[] journal = new int[64];
+    private int journalSize;
+
+    // Moves looked at and moves applied by run so far
+    private long evaluated;
+    private long applied;
+
+    public NeighborListTwoOpt(Tour tour, DistanceProvider distances, int[][] candidates) {
+        this.tour = tour;
+        this.distances = distances;
+        this.candidates = candidates;
+        this.queue = new int[tour.size()];
+        this.queued = new boolean[distances.size()];
+    }
+
+    // Optimizes the path and returns the improved path
+    public static int[] optimize(int[] path, DistanceProvider distances, int[][] candidates, boolean closed) {
+        return optimize(path, distances, candidates, closed, Metrics.Phase.NONE);
+    }
+
+    // Optimizes the path, records the run as one pass of the given phase and returns the improved path
+    public static int[] optimize(int[] path, DistanceProvider distances, int[][] candidates, boolean closed,
+                                 Metrics.Phase phase) {
+        Tour tour = new Tour(path, distances.size(), closed);
+        NeighborListTwoOpt search = optimize(tour, distances, candidates);
+        if (phase.enabled()) {
+            phase.pass(search.evaluated, search.applied, tour.length(distances));
+        }
+        return tour.toArray();
+    }
+
+    // Optimizes the tour in place and returns the search, which holds the move counts
+    public static NeighborListTwoOpt optimize(Tour tour, DistanceProvider distances, int[][] candidates) {
+        NeighborListTwoOpt search = new NeighborListTwoOpt(tour, distances, candidates);
+        if (tour.size() < 4) {
+            return search;
+        }
+        for (int i = 0; i < tour.size(); i++) {
+            search.wake(tour.city(i));
+        }
+        search.run();
+        return search;
+    }
+
+    public long movesEvaluated() {
+        return evaluated;
+    }
+
+    public long movesApplied() {
+        return applied;
+    }
+
+    // Turns the don't-look bit of a city off
+    public void wake(int city) {
+        if (!queued[city]) {
+            queue[(head + size) % queue.length] = city;
+            size++;
+            queued[city] = true;
+        }
+    }
+
+    // Applies improving moves until no queued city has one left and returns by how much the tour got shorter
+    public double run() {
+        if (tour.size() < 4) {
+            size = 0;
+            return 0;
+        }
+        double gain = 0;
+        while (size > 0) {
+            int a = queue[head];
+            head = (head + 1) % queue.length;
+            size--;
+            queued[a] = false;
+            gain -= improveCity(a);
+        }
+        return gain;
+    }
+
+    // Replaces the tour edges (a, b) and (c, d) with (a, c) and (b, d), wakes the four cities and returns the
+    // change of the tour length
+    public double move(int a, int b, int c, int d) {
+        double delta = distances.distance(a, c) + distances.distance(b, d)
+                - distances.distance(a, b) - distances.distance(c, d);
+        apply(a, b, c, d);
+        return delta;
+    }
+
+    // Starts recording the applied moves, dropping the moves recorded so far
+    public void startJournal() {
+        journaling = true;
+        journalSize = 0;
+    }
+
+    // Undoes every move recorded since startJournal and stops recording
+    public void rollback() {
+        while (journalSize > 0) {
+            journalSize -= 4;
+            int a = journal[journalSize];
+            int b = journal[journalSize + 1];
+            int c = journal[journalSize + 2];
+            int d = journal[journalSize + 3];
+            // Replace (a, c) and (b, d) with (a, b) and (c, d)
+            tour.twoOptMove(a, c, b, d);
+        }
+        journaling = false;
+    }
+
+    // Keeps the recorded moves and stops recording
+    public void commit() {
+        journalSize = 0;
+        journaling = false;
+    }
+
+    // Applies the first improving move around city a and returns its length change, 0 if there is none
+    private double improveCity(int a) {
+        // Try both tour neighbours of a: the edge (a, succ a) and the edge (pred a, a)
+        for (int direction = 1; direction >= -1; direction -= 2) {
+            boolean forward = direction == 1;
+            int b = forward ? tour.next(a) : tour.prev(a);
+            if (tour.isFixed(a, b)) continue;
+            double removed1 = distances.distance(a, b);
+
+            for (int c : candidates[a]) {
+                if (!tour.contains(c)) continue; // Candidate belongs to the other salesman
+                double added1 = distances.distance(a, c);
+                if (added1 >= removed1) break; // Candidates are sorted, no later one can gain
+                int d = forward ? tour.next(c) : tour.prev(c);
+                if (c == b || d == a || tour.isFixed(c, d)) continue;
+
+                evaluated++;
+                double delta = added1 + distances.distance(b, d) - removed1 - distances.distance(c, d);
+                if (delta < -DistanceProvider.EPSILON) {
+                    applied++;
+                    apply(a, b, c, d);
+                    return delta;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private void apply(int a, int b, int c, int d) {
+        tour.twoOptMove(a, b, c, d);
+        if (journaling) {
+            if (journalSize == journal.length) {
+                journal = Arrays.copyOf(journal, 2 * journalSize);
+            }
+            journal[journalSize++] = a;
+            journal[journalSize++] = b;
+            journal[journalSize++] = c;
+            journal[journalSize++] = d;
+        }
+        wake(a);
+        wake(b);
+        wake(c);
+        wake(d);
+    }
+}
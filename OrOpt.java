@@ -0,0 +1,203 @@
+// Local search stage that runs after 2-opt: Or-opt moves a segment of one to three cities to another place of
+// the tour (in either orientation), and a restricted 3-opt exchanges two neighbouring segments of arbitrary length
+// without reversing them. Both only try new edges towards each city's nearest neighbours, use don't-look bits
+// and stop at the given deadline, so the stage can run on large tours within a fixed time budget.
+public class OrOpt {
+
+    private static final int MAX_SEGMENT_LENGTH = 3;
+
+    private final Tour tour;
+    private final DistanceProvider distances;
+    private final int[][] candidates;
+    private final int[] changed = new int[6]; // Endpoints of the edges changed by the last move
+    private int changedCount;
+
+    private OrOpt(Tour tour, DistanceProvider distances, int[][] candidates) {
+        this.tour = tour;
+        this.distances = distances;
+        this.candidates = candidates;
+    }
+
+    // Improves the tour in place until no move improves or the deadline (System.nanoTime) passes.
+    // Returns the number of improving moves applied.
+    public static int optimize(Tour tour, DistanceProvider distances, int[][] candidates, long deadline) {
+        return new OrOpt(tour, distances, candidates).run(deadline);
+    }
+
+    private int run(long deadline) {
+        int n = tour.size();
+        if (n < 5) {
+            return 0;
+        }
+        // Circular queue of the cities whose don't-look bit is off, every city is queued at most once
+        int[] queue = new int[n];
+        int head = 0, size = 0;
+        boolean[] queued = new boolean[distances.size()];
+        for (int i = 0; i < n; i++) {
+            int city = tour.city(i);
+            queue[size++] = city;
+            queued[city] = true;
+        }
+
+        int moves = 0;
+        while (size > 0) {
+            if ((moves & 15) == 0 && System.nanoTime() > deadline) {
+                break;
+            }
+            int a = queue[head];
+            head = (head + 1) % n;
+            size--;
+            queued[a] = false;
+            if (improveCity(a)) {
+                moves++;
+                for (int k = 0; k < changedCount; k++) {
+                    int city = changed[k];
+                    if (!queued[city]) {
+                        queue[(head + size) % n] = city;
+                        size++;
+                        queued[city] = true;
+                    }
+                }
+            }
+        }
+        return moves;
+    }
+
+    private boolean improveCity(int a) {
+        for (int direction = 1; direction >= -1; direction -= 2) {
+            boolean forward = direction == 1;
+            for (int length = 1; length <= MAX_SEGMENT_LENGTH; length++) {
+                if (tryOrOpt(a, length, forward)) {
+                    return true;
+                }
+            }
+            if (tryThreeOpt(a, forward)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Moves the segment that starts at s1 and contains "length" cities in the given direction
+    private boolean tryOrOpt(int s1, int length, boolean forward) {
+        int n = tour.size();
+        if (length + 3 > n) {
+            return false;
+        }
+        int s2 = s1;
+        for (int k = 1; k < length; k++) {
+            s2 = step(s2, forward);
+        }
+        int p = step(s1, !forward);
+        int nx = step(s2, forward);
+        if (tour.isFixed(p, s1) || tour.isFixed(s2, nx)) {
+            return false;
+        }
+        double removeGain = distances.distance(p, s1) + distances.distance(s2, nx) - distances.distance(p, nx);
+        if (removeGain <= 0) {
+            return false;
+        }
+
+        // New edge from one end of the segment to one of its candidates
+        for (int end = 0; end < 2; end++) {
+            int e = end == 0 ? s1 : s2;
+            for (int c : candidates[e]) {
+                if (!tour.contains(c)) continue;
+                double added = distances.distance(c, e);
+                if (added >= removeGain) break;
+                if (inSegment(c, s1, length, forward)) continue;
+
+                // Insert between c and its successor or between its predecessor and c (seen in the given direction)
+                for (int side = 0; side < 2; side++) {
+                    int u = side == 0 ? c : step(c, !forward);
+                    int v = side == 0 ? step(c, forward) : c;
+                    if (inSegment(u, s1, length, forward) || inSegment(v, s1, length, forward) || tour.isFixed(u, v)) {
+                        continue;
+                    }
+                    // Orientation of the segment between u and v
+                    boolean keepOrientation = (u == c) == (e == s1);
+                    double insertCost = keepOrientation
+                            ? distances.distance(u, s1) + distances.distance(s2, v)
+                            : distances.distance(u, s2) + distances.distance(s1, v);
+                    insertCost -= distances.distance(u, v);
+                    if (insertCost < removeGain - DistanceProvider.EPSILON) {
+                        // Two 2-opt moves insert the segment reversed, a third one restores its orientation
+                        tour.twoOptMove(p, s1, u, v);
+                        tour.twoOptMove(p, u, nx, s2);
+                        if (keepOrientation) {
+                            tour.twoOptMove(u, s2, s1, v);
+                        }
+                        setChanged(p, nx, s1, s2, u, v);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // Pure sequential 3-opt: removes (t1, t2), (t5, t6) and (t3, t4) from t1 t2..t5 t6..t3 t4 and adds
+    // (t2, t3), (t4, t5) and (t6, t1), which swaps the segments t2..t5 and t6..t3 without reversing them
+    private boolean tryThreeOpt(int t1, boolean forward) {
+        int t2 = step(t1, forward);
+        if (tour.isFixed(t1, t2)) {
+            return false;
+        }
+        double removed1 = distances.distance(t1, t2);
+        for (int t3 : candidates[t2]) {
+            if (!tour.contains(t3)) continue;
+            double g1 = removed1 - distances.distance(t2, t3);
+            if (g1 <= 0) break;
+            int t4 = step(t3, forward);
+            if (t3 == t1 || t4 == t1 || t3 == t2 || tour.isFixed(t3, t4)) continue;
+
+            for (int t5 : candidates[t4]) {
+                if (!tour.contains(t5)) continue;
+                double g2 = g1 + distances.distance(t3, t4) - distances.distance(t4, t5);
+                if (g2 <= 0) break;
+                // t5 must lie on t2..t3 before t3, so that t6 = succ t5 lies on the same stretch
+                if (t5 == t3 || !onStretch(t2, t5, t3, forward)) continue;
+                int t6 = step(t5, forward);
+                if (tour.isFixed(t5, t6)) continue;
+                double gain = g2 + distances.distance(t5, t6) - distances.distance(t6, t1);
+                if (gain > DistanceProvider.EPSILON) {
+                    tour.twoOptMove(t1, t2, t3, t4);
+                    tour.twoOptMove(t1, t3, t6, t5);
+                    tour.twoOptMove(t3, t5, t2, t4);
+                    setChanged(t1, t2, t3, t4, t5, t6);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int step(int city, boolean forward) {
+        return forward ? tour.next(city) : tour.prev(city);
+    }
+
+    // True if b lies on the stretch from a to c in the given direction
+    private boolean onStretch(int a, int b, int c, boolean forward) {
+        return forward ? tour.between(a, b, c) : tour.between(c, b, a);
+    }
+
+    // True if city lies on the segment of "length" cities that starts at s1
+    private boolean inSegment(int city, int s1, int length, boolean forward) {
+        for (int k = 0, current = s1; k < length; k++, current = step(current, forward)) {
+            if (current == city) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void setChanged(int a, int b, int c, int d, int e, int f) {
+        changed[0] = a;
+        changed[1] = b;
+        changed[2] = c;
+        changed[3] = d;
+        changed[4] = e;
+        changed[5] = f;
+        changedCount = 6;
+    }
+}
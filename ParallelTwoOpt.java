@@ -0,0 +1,187 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Neighbour-list 2-opt of one path on several threads. Every round cuts the path into consecutive segments and
+// optimizes them concurrently as open paths of their own: the ends of a segment stay in place, so the segments
+// always join up into a valid path over the same cities, and a closed tour keeps its closing edge.
+// Moves only connect cities of the same segment, so the second round shifts the cuts by half a segment to optimize
+// the former boundary regions as well. A final sequential pass then reconciles the segments: it starts from the
+// cities next to a cut or with a candidate neighbour in another segment, the only ones that can still have an
+// improving move, and follows the changes from there like the sequential search does.
+// Segments follow the tour, so they are compact regions of the plane when the tour is; after a Hilbert curve
+// construction almost every move stays inside a segment, while the long jumps of a nearest neighbour tour leave
+// more work for the final pass.
+public class ParallelTwoOpt {
+
+    private static final int MIN_SEGMENT = 2000; // Shorter segments cost more in set-up than they gain in parallelism
+    private static final int SEGMENTS_PER_THREAD = 4; // More segments than threads balance uneven segments
+    private static final int ROUNDS = 2; // Rounds on segments, the second with the cuts shifted by half a segment
+
+    private ParallelTwoOpt() {
+    }
+
+    // Optimizes the path on the given number of threads, records every round as a pass of the phase and returns the
+    // improved path
+    public static int[] optimize(int[] path, DistanceProvider distances, int[][] candidates, boolean closed,
+                                 int threads, Metrics.Phase phase) {
+        int n = path.length;
+        int segments = Math.min(threads * SEGMENTS_PER_THREAD, n / MIN_SEGMENT);
+        if (threads == 1 || segments < 2) {
+            return NeighborListTwoOpt.optimize(path, distances, candidates, closed, phase);
+        }
+        int[] result = path.clone();
+        int[] position = new int[distances.size()]; // Position of every city in result, -1 for the other salesman
+        Arrays.fill(position, -1);
+        boolean[] boundary = new boolean[distances.size()]; // Cities with a candidate in another segment
+        long[] evaluated = new long[segments + 1];
+        long[] applied = new long[segments + 1];
+        int[] cuts = null;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                for (int i = 0; i < n; i++) {
+                    position[result[i]] = i;
+                }
+                cuts = cuts(n, segments, round % 2 == 1);
+                Arrays.fill(evaluated, 0);
+                Arrays.fill(applied, 0);
+                pool.invoke(new Segments(result, cuts, 0, cuts.length - 1, position, boundary, distances, candidates,
+                        evaluated, applied));
+                if (phase.enabled()) {
+                    phase.pass(Arrays.stream(evaluated).sum(), Arrays.stream(applied).sum(),
+                            new Tour(result, distances.size(), closed).length(distances));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        // Reconcile the segments of the last round, starting from their boundaries
+        Tour tour = new Tour(result, distances.size(), closed);
+        NeighborListTwoOpt search = new NeighborListTwoOpt(tour, distances, candidates);
+        for (int s = 1; s < cuts.length - 1; s++) {
+            search.wake(result[cuts[s] - 1]);
+            search.wake(result[cuts[s]]);
+        }
+        search.wake(result[0]);
+        search.wake(result[n - 1]);
+        for (int city : result) {
+            if (boundary[city]) {
+                search.wake(city);
+            }
+        }
+        search.run();
+        if (phase.enabled()) {
+            phase.pass(search.movesEvaluated(), search.movesApplied(), tour.length(distances));
+        }
+        return tour.toArray();
+    }
+
+    // Segment boundaries: segment s covers the positions cuts[s] .. cuts[s + 1] - 1
+    private static int[] cuts(int n, int segments, boolean shifted) {
+        int length = n / segments;
+        int offset = shifted ? length / 2 : 0;
+        int count = shifted ? segments + 1 : segments;
+        int[] cuts = new int[count + 1];
+        for (int s = 1; s < count; s++) {
+            cuts[s] = offset + (s - (shifted ? 1 : 0)) * length;
+        }
+        cuts[count] = n;
+        return cuts;
+    }
+
+    // Optimizes a range of segments, splitting it in halves until single segments remain
+    private static final class Segments extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] path;
+        private final int[] cuts;
+        private final int from;
+        private final int to;
+        private final int[] position;
+        private final boolean[] boundary;
+        private final DistanceProvider distances;
+        private final int[][] candidates;
+        private final long[] evaluated;
+        private final long[] applied;
+
+        Segments(int[] path, int[] cuts, int from, int to, int[] position, boolean[] boundary,
+                 DistanceProvider distances, int[][] candidates, long[] evaluated, long[] applied) {
+            this.path = path;
+            this.cuts = cuts;
+            this.from = from;
+            this.to = to;
+            this.position = position;
+            this.boundary = boundary;
+            this.distances = distances;
+            this.candidates = candidates;
+            this.evaluated = evaluated;
+            this.applied = applied;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                optimizeSegment(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Segments(path, cuts, from, middle, position, boundary, distances, candidates, evaluated, applied),
+                    new Segments(path, cuts, middle, to, position, boundary, distances, candidates, evaluated, applied));
+        }
+
+        // Optimizes path[cuts[s] .. cuts[s + 1] - 1] on local city numbers 0 .. m - 1, which keep their order, and
+        // marks the cities of the segment that have a candidate in another one
+        private void optimizeSegment(int s) {
+            int start = cuts[s];
+            int end = cuts[s + 1];
+            int m = end - start;
+            int[] cities = Arrays.copyOfRange(path, start, end);
+            int[][] local = new int[m][];
+            int[] buffer = new int[0];
+            for (int i = 0; i < m; i++) {
+                int[] list = candidates[cities[i]];
+                if (buffer.length < list.length) {
+                    buffer = new int[list.length];
+                }
+                int size = 0;
+                boolean outside = false;
+                for (int c : list) {
+                    int p = position[c];
+                    if (p >= start && p < end) {
+                        buffer[size++] = p - start;
+                    } else if (p != -1) {
+                        outside = true;
+                    }
+                }
+                boundary[cities[i]] = outside;
+                local[i] = Arrays.copyOf(buffer, size);
+            }
+            DistanceProvider segment = new DistanceProvider() {
+                @Override
+                public int size() {
+                    return m;
+                }
+
+                @Override
+                public double distance(int from, int to) {
+                    return distances.distance(cities[from], cities[to]);
+                }
+            };
+            int[] identity = new int[m];
+            for (int i = 0; i < m; i++) {
+                identity[i] = i;
+            }
+            Tour tour = new Tour(identity, m, false);
+            NeighborListTwoOpt search = NeighborListTwoOpt.optimize(tour, segment, local);
+            int[] order = tour.toArray();
+            for (int i = 0; i < m; i++) {
+                path[start + i] = cities[order[i]];
+            }
+            evaluated[s] = search.movesEvaluated();
+            applied[s] = search.movesApplied();
+        }
+    }
+}
@@ -0,0 +1,604 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Self-checking program for the solver building blocks. Every check compares a fast implementation with a slow
+// reference on small random instances (fixed seeds, so failures reproduce) and prints what differs.
+// Exits with status 1 if any check failed. Run from the repository root:
+//   javac -d out -sourcepath . SelfCheck.java && java -cp out SelfCheck
+public class SelfCheck {
+
+    private static int checks = 0;
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        checkKdTree();
+        checkEuclideanMst();
+        checkLocalSearch();
+        checkLowerBound();
+        checkExactForest();
+        checkCheckpoint();
+
+        if (failures > 0) {
+            System.err.printf("%d of %d checks failed%n", failures, checks);
+            System.exit(1);
+        }
+        System.out.printf("All %d checks passed%n", checks);
+    }
+
+    // KdTree queries against a scan over all cities, with duplicate points and removed cities
+    private static void checkKdTree() {
+        SplittableRandom random = new SplittableRandom(2);
+        for (int instance = 0; instance < 100; instance++) {
+            int n = 1 + random.nextInt(300);
+            int range = 1 + random.nextInt(1000); // Small ranges give many duplicates and ties
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = random.nextInt(range);
+                ys[i] = random.nextInt(range);
+            }
+            KdTree index = new KdTree(xs, ys);
+            int k = 1 + random.nextInt(12);
+            int[][] lists = index.candidateLists(k);
+            boolean same = true;
+            for (int city = 0; city < n && same; city++) {
+                same = Arrays.equals(lists[city], bruteForceNearest(xs, ys, city, k));
+            }
+            expect("KdTree.candidateLists instance " + instance, same, k + " nearest differ from brute force");
+
+            // Remove cities one by one and compare the nearest and lowestWithin queries with a scan
+            boolean[] removed = new boolean[n];
+            String problem = null;
+            for (int step = 0; step < n && problem == null; step++) {
+                int city = random.nextInt(n);
+                double squaredLimit = random.nextInt(range * range / 4 + 1);
+                double nearestDistance = Double.POSITIVE_INFINITY;
+                int lowest = -1;
+                for (int other = 0; other < n; other++) {
+                    if (other == city || removed[other]) continue;
+                    double d = squaredDistance(xs, ys, city, other);
+                    nearestDistance = Math.min(nearestDistance, d);
+                    if (lowest == -1 && d < squaredLimit) {
+                        lowest = other;
+                    }
+                }
+                int nearest = index.nearest(city);
+                double found = nearest == -1 ? Double.POSITIVE_INFINITY : squaredDistance(xs, ys, city, nearest);
+                if (found != nearestDistance || (nearest != -1 && (nearest == city || removed[nearest]))) {
+                    problem = "nearest of " + city + " is " + nearest + " at " + found + ", expected " + nearestDistance;
+                } else if (index.lowestWithin(xs[city], ys[city], city, squaredLimit) != lowest) {
+                    problem = "lowestWithin of " + city + " is not " + lowest;
+                }
+                int victim = random.nextInt(n);
+                if (!removed[victim]) {
+                    index.remove(victim);
+                    removed[victim] = true;
+                }
+            }
+            expect("KdTree queries instance " + instance, problem == null, problem);
+        }
+    }
+
+    // The k nearest other cities, closest first and ties by lower index, as the k-d tree orders them
+    private static int[] bruteForceNearest(double[] xs, double[] ys, int city, int k) {
+        Integer[] others = new Integer[xs.length - 1];
+        for (int i = 0, j = 0; i < xs.length; i++) {
+            if (i != city) {
+                others[j++] = i;
+            }
+        }
+        Arrays.sort(others, (a, b) -> {
+            int order = Double.compare(squaredDistance(xs, ys, city, a), squaredDistance(xs, ys, city, b));
+            return order != 0 ? order : Integer.compare(a, b);
+        });
+        int[] nearest = new int[Math.min(k, others.length)];
+        for (int i = 0; i < nearest.length; i++) {
+            nearest[i] = others[i];
+        }
+        return nearest;
+    }
+
+    // EuclideanMst against a dense Prim, on clustered points whose k-NN graph is connected but misses tree edges
+    private static void checkEuclideanMst() {
+        checkMst("EuclideanMst counterexample",
+                new double[]{201, 9, 6, 9, 9, 7, 107, 3, 9}, new double[]{2, 5, 1, 5, 1, 1, 107, 5, 4}, 2);
+        SplittableRandom random = new SplittableRandom(10);
+        for (int instance = 0; instance < 200; instance++) {
+            int clusters = 1 + random.nextInt(6);
+            int n = 2 + random.nextInt(120);
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            int[][] centres = new int[clusters][];
+            for (int c = 0; c < clusters; c++) {
+                centres[c] = new int[]{random.nextInt(10_000), random.nextInt(10_000)};
+            }
+            for (int i = 0; i < n; i++) {
+                int[] centre = centres[random.nextInt(clusters)];
+                xs[i] = centre[0] + random.nextInt(50);
+                ys[i] = centre[1] + random.nextInt(50);
+            }
+            checkMst("EuclideanMst clustered instance " + instance, xs, ys, 1 + random.nextInt(8));
+        }
+    }
+
+    private static void checkMst(String name, double[] xs, double[] ys, int k) {
+        int n = xs.length;
+        int[][] tree = EuclideanMst.build(xs, ys, k);
+        int[] root = new int[n];
+        for (int i = 0; i < n; i++) {
+            root[i] = i;
+        }
+        double weight = 0;
+        int joined = 0;
+        for (int e = 0; e < tree[0].length; e++) {
+            weight += Math.hypot(xs[tree[0][e]] - xs[tree[1][e]], ys[tree[0][e]] - ys[tree[1][e]]);
+            int a = find(root, tree[0][e]);
+            int b = find(root, tree[1][e]);
+            if (a != b) {
+                root[a] = b;
+                joined++;
+            }
+        }
+        double expected = densePrim(xs, ys);
+        expect(name, joined == n - 1 && Math.abs(weight - expected) <= 1e-6 * Math.max(1, expected),
+                "tree of " + joined + " joining edges and weight " + weight + ", dense Prim weight " + expected);
+    }
+
+    // Weight of the minimum spanning tree over all pairs
+    private static double densePrim(double[] xs, double[] ys) {
+        int n = xs.length;
+        double[] distance = new double[n];
+        boolean[] inTree = new boolean[n];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        distance[0] = 0;
+        double weight = 0;
+        for (int step = 0; step < n; step++) {
+            int next = -1;
+            for (int i = 0; i < n; i++) {
+                if (!inTree[i] && (next == -1 || distance[i] < distance[next])) {
+                    next = i;
+                }
+            }
+            inTree[next] = true;
+            weight += distance[next];
+            for (int i = 0; i < n; i++) {
+                if (!inTree[i]) {
+                    distance[i] = Math.min(distance[i], Math.hypot(xs[i] - xs[next], ys[i] - ys[next]));
+                }
+            }
+        }
+        return weight;
+    }
+
+    // Every local search on random paths over uniform and clustered cities, for open paths with the rounded distances
+    // and for closed tours with the exact ones. Each result must visit the same cities, keep the first city (and the
+    // last one of an open path) and not be longer.
+    private static void checkLocalSearch() {
+        SplittableRandom random = new SplittableRandom(3);
+        for (int instance = 0; instance < 60; instance++) {
+            boolean closed = instance % 2 == 1;
+            int n = 5 + random.nextInt(300);
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            int clusters = 1 + random.nextInt(4);
+            for (int i = 0; i < n; i++) {
+                int cluster = random.nextInt(clusters);
+                xs[i] = cluster * 5000 + random.nextInt(1000);
+                ys[i] = random.nextInt(1000);
+            }
+            DistanceProvider distances = closed ? new CoordinateDistanceProvider(toDouble(xs), toDouble(ys))
+                    : new IntDistanceKernel(xs, ys);
+            int[][] candidates = KdTree.of(xs, ys).candidateLists(8);
+            int[] path = shuffled(n, random);
+            String name = (closed ? " closed " : " open ") + instance;
+
+            checkMove("NeighborListTwoOpt" + name, path, NeighborListTwoOpt.optimize(path.clone(), distances,
+                    candidates, closed), closed, distances);
+
+            if (!closed) {
+                // The exhaustive 2-opt must also make the same moves in the same order as the plain array version
+                List<int[]> cities = new ArrayList<>();
+                for (int i = 0; i < n; i++) {
+                    cities.add(new int[]{xs[i], ys[i]});
+                }
+                int[] swept = TwoTSPNearestNeighbor.optimizeWith2Opt(path.clone(), cities);
+                checkMove("optimizeWith2Opt" + name, path, swept, false, distances);
+                expect("optimizeWith2Opt order" + name, Arrays.equals(swept, arrayTwoOpt(path.clone(), xs, ys)),
+                        "the path differs from the one of the array sweep");
+            }
+
+            if (closed) {
+                checkMove("ExhaustiveTwoOpt" + name, path, ExhaustiveTwoOpt.optimize(path.clone(), distances,
+                        Metrics.Phase.NONE), true, distances);
+            }
+
+            Tour tour = new Tour(path, n, closed);
+            OrOpt.optimize(tour, distances, candidates, deadline());
+            checkMove("OrOpt" + name, path, tour.toArray(), closed, distances);
+
+            int cut = 1 + random.nextInt(n - 1);
+            int[][] pair = {Arrays.copyOf(path, cut), Arrays.copyOfRange(path, cut, n)};
+            for (InterTourExchange.Objective objective : InterTourExchange.Objective.values()) {
+                checkPair("InterTourExchange " + objective + name, pair, InterTourExchange.optimize(pair, closed,
+                        distances, candidates, objective, deadline()), closed, distances, objective);
+            }
+            int[][] oneEmpty = {path.clone(), new int[0]};
+            checkPair("InterTourExchange empty path" + name, oneEmpty, InterTourExchange.optimize(oneEmpty, closed,
+                    distances, candidates, InterTourExchange.Objective.TOTAL, deadline()), closed, distances,
+                    InterTourExchange.Objective.TOTAL);
+
+            checkMove("LinKernighan" + name, path, LinKernighan.optimize(path.clone(), closed, distances, candidates,
+                    deadline()), closed, distances);
+
+            // The search keeps the best pair seen, so even annealing must not return longer paths
+            for (IteratedLocalSearch.Acceptance acceptance : IteratedLocalSearch.Acceptance.values()) {
+                checkPair("IteratedLocalSearch " + acceptance + name, pair, IteratedLocalSearch.optimize(pair, closed,
+                        distances, candidates, acceptance, System.nanoTime() + 20_000_000L, instance, null), closed,
+                        distances, InterTourExchange.Objective.TOTAL);
+            }
+        }
+
+        // Many duplicate and collinear cities give moves whose gain is only rounding noise; the exhaustive sweep of
+        // TwoSalesmenTSP must still stop
+        for (int instance = 0; instance < 20; instance++) {
+            int n = 5 + random.nextInt(200);
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = random.nextInt(6);
+                ys[i] = random.nextInt(2) * 3;
+            }
+            DistanceProvider distances = new CoordinateDistanceProvider(xs, ys);
+            int[] path = shuffled(n, random);
+            checkMove("ExhaustiveTwoOpt collinear " + instance, path, ExhaustiveTwoOpt.optimize(path.clone(),
+                    distances, Metrics.Phase.NONE), true, distances);
+        }
+
+        // Paths long enough for ParallelTwoOpt to cut them into segments, over part of the cities like a salesman's
+        for (int instance = 0; instance < 4; instance++) {
+            boolean closed = instance % 2 == 1;
+            int n = 10_000 + random.nextInt(20_000);
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = random.nextInt(100_000);
+                ys[i] = random.nextInt(100_000);
+            }
+            DistanceProvider distances = closed ? new CoordinateDistanceProvider(toDouble(xs), toDouble(ys))
+                    : new IntDistanceKernel(xs, ys);
+            int[][] candidates = KdTree.of(xs, ys).candidateLists(8);
+            int[] path = Arrays.copyOf(shuffled(n, random), n - random.nextInt(n / 4));
+            checkMove("ParallelTwoOpt" + (closed ? " closed " : " open ") + instance, path,
+                    ParallelTwoOpt.optimize(path.clone(), distances, candidates, closed, 4, Metrics.Phase.NONE), closed,
+                    distances);
+        }
+    }
+
+    // LowerBound against the optimum over all pairs of open paths, found by trying every order and split point
+    private static void checkLowerBound() {
+        SplittableRandom random = new SplittableRandom(4);
+        for (int instance = 0; instance < 60; instance++) {
+            int n = 2 + random.nextInt(7);
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = random.nextInt(instance % 3 == 0 ? 10 : 1000);
+                ys[i] = random.nextInt(instance % 3 == 0 ? 10 : 1000);
+            }
+            IntDistanceKernel distances = new IntDistanceKernel(xs, ys);
+            long optimum = bestSplit(distances, shuffled(n, new SplittableRandom(0)), 0);
+            // A loose upper bound only slows the ascent down, the bound must stay valid
+            double upperBound = optimum * (1 + random.nextInt(3));
+            long bound = LowerBound.compute(distances, upperBound, 1000, deadline(), 0);
+            expect("LowerBound instance " + instance, bound <= optimum,
+                    "bound " + bound + " above the optimum " + optimum + " of " + n + " cities");
+        }
+    }
+
+    // The exact minimum 2-forest of LowerBound against a dense Prim over all pairs. With a few hundred cities and
+    // penalties as large as the distances, many cheapest penalized edges lie outside the candidate graph, so the
+    // k-d tree search for them is exercised.
+    private static void checkExactForest() {
+        SplittableRandom random = new SplittableRandom(6);
+        for (int instance = 0; instance < 40; instance++) {
+            int n = 100 + random.nextInt(400);
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            int range = instance % 4 == 0 ? 30 : 1000; // Small ranges give duplicate cities
+            for (int i = 0; i < n; i++) {
+                xs[i] = random.nextInt(range);
+                ys[i] = random.nextInt(range);
+            }
+            double spread = instance % 2 == 0 ? range / 2.0 : 0; // Also without penalties
+            double[] penalty = new double[n];
+            for (int i = 0; i < n; i++) {
+                penalty[i] = (random.nextDouble() - 0.5) * spread;
+            }
+            IntDistanceKernel distances = new IntDistanceKernel(xs, ys);
+            double expected = denseTwoForest(distances, penalty);
+            double found = LowerBound.exactForest(distances, penalty);
+            boolean close = Math.abs(found - expected) <= 1e-6 * Math.abs(expected);
+            expect("LowerBound.exactForest instance " + instance, close, "forest " + found + ", dense Prim " + expected);
+        }
+    }
+
+    // Minimum spanning tree by Prim for the weights distance + pi[a] + pi[b] less its heaviest edge and 2 * sum(pi)
+    private static double denseTwoForest(IntDistanceKernel distances, double[] penalty) {
+        int n = penalty.length;
+        double[] key = new double[n];
+        boolean[] inTree = new boolean[n];
+        Arrays.fill(key, Double.POSITIVE_INFINITY);
+        key[0] = 0;
+        double total = 0;
+        double heaviest = Double.NEGATIVE_INFINITY;
+        for (int step = 0; step < n; step++) {
+            int next = -1;
+            for (int i = 0; i < n; i++) {
+                if (!inTree[i] && (next == -1 || key[i] < key[next])) {
+                    next = i;
+                }
+            }
+            inTree[next] = true;
+            if (step > 0) {
+                total += key[next];
+                heaviest = Math.max(heaviest, key[next]);
+            }
+            for (int i = 0; i < n; i++) {
+                if (!inTree[i]) {
+                    key[i] = Math.min(key[i], distances.rounded(next, i) + penalty[next] + penalty[i]);
+                }
+            }
+        }
+        double penaltySum = 0;
+        for (double p : penalty) {
+            penaltySum += p;
+        }
+        return total - heaviest - 2 * penaltySum;
+    }
+
+    // Cheapest pair of non-empty open paths over the cities, by trying every order of order[from..] and every split
+    private static long bestSplit(IntDistanceKernel distances, int[] order, int from) {
+        int n = order.length;
+        if (from == n) {
+            long best = Long.MAX_VALUE;
+            for (int cut = 1; cut < n; cut++) {
+                long cost = 0;
+                for (int i = 0; i + 1 < n; i++) {
+                    if (i + 1 != cut) {
+                        cost += distances.rounded(order[i], order[i + 1]);
+                    }
+                }
+                best = Math.min(best, cost);
+            }
+            return best;
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = from; i < n; i++) {
+            int temp = order[from];
+            order[from] = order[i];
+            order[i] = temp;
+            best = Math.min(best, bestSplit(distances, order, from + 1));
+            order[i] = order[from];
+            order[from] = temp;
+        }
+        return best;
+    }
+
+    // Checkpoint files read back as written, and damaged ones are refused
+    private static void checkCheckpoint() {
+        SplittableRandom random = new SplittableRandom(5);
+        File file;
+        try {
+            file = File.createTempFile("selfcheck", ".checkpoint");
+        } catch (IOException e) {
+            expect("Checkpoint temporary file", false, e.getMessage());
+            return;
+        }
+        file.deleteOnExit();
+        for (int instance = 0; instance < 20; instance++) {
+            int n = random.nextInt(500);
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = random.nextInt(-1_000_000, 1_000_000);
+                ys[i] = random.nextInt(-1_000_000, 1_000_000);
+            }
+            int[] order = shuffled(n, random);
+            int cut = instance % 5 == 0 ? n : random.nextInt(n + 1); // Some second paths are empty
+            int[][] paths = {Arrays.copyOf(order, cut), Arrays.copyOfRange(order, cut, n)};
+            String name = "Checkpoint instance " + instance;
+            try {
+                new Checkpoint(xs, ys, paths).write(file.getPath());
+                Checkpoint read = Checkpoint.read(file.getPath());
+                expect(name + " round trip", Arrays.equals(read.xs, xs) && Arrays.equals(read.ys, ys)
+                        && Arrays.deepEquals(read.paths, paths), "the checkpoint read back differs");
+            } catch (IOException e) {
+                expect(name + " round trip", false, e.getMessage());
+            }
+            if (n < 2) continue;
+
+            // A truncated file and paths that visit a city twice must both fail to read
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(raf.length() - 4);
+            } catch (IOException e) {
+                expect(name + " truncation", false, e.getMessage());
+            }
+            expect(name + " truncated", !readable(file), "a truncated checkpoint was read");
+            int[][] repeated = {paths[0].clone(), paths[1].clone()};
+            int[] last = repeated[1].length > 0 ? repeated[1] : repeated[0];
+            last[last.length - 1] = order[0]; // The first city of all once more at the end
+            try {
+                new Checkpoint(xs, ys, repeated).write(file.getPath());
+            } catch (IOException e) {
+                expect(name + " write", false, e.getMessage());
+            }
+            expect(name + " repeated city", !readable(file), "a checkpoint visiting a city twice was read");
+        }
+        file.delete();
+    }
+
+    private static boolean readable(File file) {
+        try {
+            Checkpoint.read(file.getPath());
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Exhaustive first-improvement 2-opt on a plain array with fixed endpoints, the reference for optimizeWith2Opt
+    private static int[] arrayTwoOpt(int[] path, int[] xs, int[] ys) {
+        int n = path.length;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 1; i < n - 2; i++) {
+                for (int j = i + 1; j < n - 1; j++) {
+                    int a = path[i - 1], b = path[i], c = path[j], d = path[j + 1];
+                    int gain = IntDistanceKernel.rounded(xs[a], ys[a], xs[c], ys[c])
+                            + IntDistanceKernel.rounded(xs[b], ys[b], xs[d], ys[d])
+                            - IntDistanceKernel.rounded(xs[a], ys[a], xs[b], ys[b])
+                            - IntDistanceKernel.rounded(xs[c], ys[c], xs[d], ys[d]);
+                    if (gain < 0) {
+                        for (int from = i, to = j; from < to; from++, to--) {
+                            int temp = path[from];
+                            path[from] = path[to];
+                            path[to] = temp;
+                        }
+                        improved = true;
+                    }
+                }
+            }
+        }
+        return path;
+    }
+
+    // Checks a path returned by a local search against the path it started from
+    private static void checkMove(String name, int[] before, int[] after, boolean closed, DistanceProvider distances) {
+        String problem = null;
+        if (!samePermutation(before, after)) {
+            problem = "the cities differ";
+        } else if (before.length > 0 && after[0] != before[0]) {
+            problem = "the first city moved";
+        } else if (!closed && before.length > 0 && after[after.length - 1] != before[before.length - 1]) {
+            problem = "the last city moved";
+        } else if (length(after, closed, distances)
+                > length(before, closed, distances) + DistanceProvider.EPSILON) {
+            problem = "the length grew from " + length(before, closed, distances) + " to "
+                    + length(after, closed, distances);
+        }
+        expect(name, problem == null, problem);
+    }
+
+    // Checks the paths of both salesmen returned by a local search against the paths it started from. The total
+    // length must not grow, or for the makespan objective the length of the longer path.
+    private static void checkPair(String name, int[][] before, int[][] after, boolean closed,
+                                  DistanceProvider distances, InterTourExchange.Objective objective) {
+        String problem = null;
+        for (int k = 0; k < 2 && problem == null; k++) {
+            int[] path = before[k];
+            if (path.length == 0) {
+                if (after[k].length != 0) {
+                    problem = "the empty path " + (k + 1) + " got cities";
+                }
+            } else if (after[k].length == 0 || after[k][0] != path[0]) {
+                problem = "the first city of path " + (k + 1) + " moved";
+            } else if (!closed && after[k][after[k].length - 1] != path[path.length - 1]) {
+                problem = "the last city of path " + (k + 1) + " moved";
+            }
+        }
+        double valueBefore = objective(before, closed, distances, objective);
+        double valueAfter = objective(after, closed, distances, objective);
+        if (problem == null && !samePermutation(concat(before), concat(after))) {
+            problem = "the cities differ";
+        } else if (problem == null && valueAfter > valueBefore + DistanceProvider.EPSILON) {
+            problem = "the " + objective + " length grew from " + valueBefore + " to " + valueAfter;
+        }
+        expect(name, problem == null, problem);
+    }
+
+    private static double objective(int[][] paths, boolean closed, DistanceProvider distances,
+                                    InterTourExchange.Objective objective) {
+        double length0 = length(paths[0], closed, distances);
+        double length1 = length(paths[1], closed, distances);
+        return objective == InterTourExchange.Objective.MAKESPAN ? Math.max(length0, length1) : length0 + length1;
+    }
+
+    private static int[] concat(int[][] paths) {
+        int[] all = Arrays.copyOf(paths[0], paths[0].length + paths[1].length);
+        System.arraycopy(paths[1], 0, all, paths[0].length, paths[1].length);
+        return all;
+    }
+
+    // Deadline for searches that should run to their local optimum
+    private static long deadline() {
+        return System.nanoTime() + 60_000_000_000L;
+    }
+
+    private static boolean samePermutation(int[] a, int[] b) {
+        int[] sortedA = a.clone();
+        int[] sortedB = b.clone();
+        Arrays.sort(sortedA);
+        Arrays.sort(sortedB);
+        return Arrays.equals(sortedA, sortedB);
+    }
+
+    private static double length(int[] path, boolean closed, DistanceProvider distances) {
+        double total = 0;
+        for (int i = 0; i + 1 < path.length; i++) {
+            total += distances.distance(path[i], path[i + 1]);
+        }
+        if (closed && path.length > 1) {
+            total += distances.distance(path[path.length - 1], path[0]);
+        }
+        return total;
+    }
+
+    private static int[] shuffled(int n, SplittableRandom random) {
+        int[] path = new int[n];
+        for (int i = 0; i < n; i++) {
+            path[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = path[i];
+            path[i] = path[j];
+            path[j] = temp;
+        }
+        return path;
+    }
+
+    private static double[] toDouble(int[] values) {
+        double[] result = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i];
+        }
+        return result;
+    }
+
+    private static double squaredDistance(double[] xs, double[] ys, int a, int b) {
+        double dx = xs[a] - xs[b];
+        double dy = ys[a] - ys[b];
+        return dx * dx + dy * dy;
+    }
+
+    private static int find(int[] root, int i) {
+        while (root[i] != i) {
+            i = root[i];
+        }
+        return i;
+    }
+
+    private static void expect(String name, boolean passed, String detail) {
+        checks++;
+        if (!passed) {
+            failures++;
+            System.err.println("FAILED " + name + ": " + detail);
+        }
+    }
+}
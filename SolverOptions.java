@@ -0,0 +1,214 @@
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Command line options of the solvers, given as --name=value arguments
+public class SolverOptions implements Cloneable {
+
+    // How paths are improved with 2-opt
+    public enum TwoOptMode {
+        FULL,     // Sweep over every pair of edges until no move improves
+        NEIGHBOR, // Only try moves towards each city's nearest neighbours, using don't-look bits
+        PARALLEL  // NEIGHBOR on segments of each path at once, using the worker threads
+    }
+
+    // How the initial paths are built
+    public enum Construction {
+        NEAREST, // Both salesmen repeatedly move to the nearest unvisited city, starting at cities 0 and 1
+        HILBERT  // The order of a Hilbert curve through the cities, split into two paths
+    }
+
+    public String inputFile;
+    public String outputFile;
+    public Construction construction = Construction.NEAREST;
+    public boolean renumber = false; // Solve with the cities renumbered in Hilbert order for memory locality
+    public TwoOptMode twoOpt = TwoOptMode.FULL;
+    public int neighbors = 10; // Length of the candidate neighbour lists
+    public double orOptSeconds = 0; // Time budget of the Or-opt / 3-opt stage after 2-opt, 0 skips the stage
+    public double lkSeconds = 0; // Time budget of the Lin-Kernighan stage, 0 skips the stage
+    public double ilsSeconds = 0; // Time budget of the iterated local search at the end, 0 skips the stage
+    public double boundSeconds = 0; // Time budget of the lower bound and the gap report (see LowerBound), 0 skips them
+    public double targetGap = 0; // Skip the remaining stages once the total cost is within this fraction of the bound
+    public IteratedLocalSearch.Acceptance acceptance = IteratedLocalSearch.Acceptance.BETTER; // Kicks kept by the search
+    public InterTourExchange.Objective interTour; // Objective of the exchanges between the salesmen, null skips them
+    public double interTourSeconds = 60; // Time budget of the exchanges between the salesmen
+    public int starts = 1; // Number of independent starts, more than one runs them in parallel
+    public int threads = Runtime.getRuntime().availableProcessors(); // Worker threads of the parallel stages
+    public double timeLimitSeconds = 0; // Wall-clock limit of the whole run, 0 for no limit
+    public long seed = 1; // Seed of all random decisions, the same seed reproduces a run
+    public String metricsFile; // Phase metrics report, JSON or CSV by extension, null for none
+    public boolean progress = false; // Print the parse summary and a line after every pass and phase to stderr
+    public String checkpointFile; // Binary checkpoint written after solving, null for none
+    public String resumeFile; // Checkpoint to resume from instead of solving the input, null to solve
+    public String diffFile; // Cities added to and removed from the resumed checkpoint, null for none
+    public String batch; // Directory of inputs, or - for "input [output]" lines on stdin, to solve as a batch
+    public String batchOutput; // Directory of the batch outputs, null for next to each input
+    private final Set<String> given = new LinkedHashSet<>(); // Names of the options on the command line
+
+    public static SolverOptions parse(String[] args, String defaultInput, String defaultOutput) {
+        SolverOptions options = new SolverOptions();
+        options.inputFile = defaultInput;
+        options.outputFile = defaultOutput;
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected an option of the form --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            options.given.add(name);
+            switch (name) {
+                case "input":
+                    options.inputFile = value;
+                    break;
+                case "output":
+                    options.outputFile = value;
+                    break;
+                case "construction":
+                    options.construction = Construction.valueOf(value.toUpperCase());
+                    break;
+                case "renumber":
+                    options.renumber = bool(name, value);
+                    break;
+                case "two-opt":
+                    options.twoOpt = TwoOptMode.valueOf(value.toUpperCase());
+                    break;
+                case "neighbors":
+                    options.neighbors = positive(name, value);
+                    break;
+                case "or-opt-seconds":
+                    options.orOptSeconds = nonNegative(name, value);
+                    break;
+                case "lk-seconds":
+                    options.lkSeconds = nonNegative(name, value);
+                    break;
+                case "ils-seconds":
+                    options.ilsSeconds = nonNegative(name, value);
+                    break;
+                case "bound-seconds":
+                    options.boundSeconds = nonNegative(name, value);
+                    break;
+                case "target-gap":
+                    options.targetGap = nonNegative(name, value);
+                    break;
+                case "acceptance":
+                    options.acceptance = IteratedLocalSearch.Acceptance.valueOf(value.toUpperCase());
+                    break;
+                case "inter-tour":
+                    options.interTour = value.equals("none") ? null : InterTourExchange.Objective.valueOf(value.toUpperCase());
+                    break;
+                case "inter-tour-seconds":
+                    options.interTourSeconds = nonNegative(name, value);
+                    break;
+                case "starts":
+                    options.starts = positive(name, value);
+                    break;
+                case "threads":
+                    options.threads = positive(name, value);
+                    break;
+                case "time-limit":
+                    options.timeLimitSeconds = nonNegative(name, value);
+                    break;
+                case "seed":
+                    options.seed = Long.parseLong(value);
+                    break;
+                case "metrics":
+                    options.metricsFile = value;
+                    break;
+                case "progress":
+                    options.progress = bool(name, value);
+                    break;
+                case "checkpoint":
+                    options.checkpointFile = value;
+                    break;
+                case "resume":
+                    options.resumeFile = value;
+                    break;
+                case "diff":
+                    options.diffFile = value;
+                    break;
+                case "batch":
+                    options.batch = value;
+                    break;
+                case "batch-output":
+                    options.batchOutput = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+        }
+        if (options.targetGap > 0 && options.boundSeconds == 0) {
+            throw new IllegalArgumentException("--target-gap needs a lower bound, set --bound-seconds as well");
+        }
+        if (options.targetGap > 0 && options.resumeFile != null) {
+            throw new IllegalArgumentException("--target-gap stops improvement stages, which --resume does not run");
+        }
+        return options;
+    }
+
+    // Rejects the options among the given names that were set on the command line, for a solver without them
+    public void reject(String solver, String... unsupported) {
+        List<String> found = new ArrayList<>();
+        for (String name : unsupported) {
+            if (given.contains(name)) {
+                found.add("--" + name);
+            }
+        }
+        if (!found.isEmpty()) {
+            throw new IllegalArgumentException(solver + " does not support " + String.join(", ", found));
+        }
+    }
+
+    // Independent copy, for runs that change some options
+    public SolverOptions copy() {
+        try {
+            return (SolverOptions) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static double nonNegative(String name, String value) {
+        double number = Double.parseDouble(value);
+        if (!(number >= 0)) {
+            throw new IllegalArgumentException("--" + name + " must not be negative but was " + value);
+        }
+        return number;
+    }
+
+    // Candidate neighbour lists are needed by every stage except the exhaustive 2-opt
+    public boolean needsCandidates() {
+        return twoOpt != TwoOptMode.FULL || orOptSeconds > 0 || lkSeconds > 0 || ilsSeconds > 0 || interTour != null;
+    }
+
+    // System.nanoTime() deadline of the whole run, starting now
+    public long deadline() {
+        return timeLimitSeconds > 0 ? deadlineAfter(timeLimitSeconds, Long.MAX_VALUE) : Long.MAX_VALUE;
+    }
+
+    // System.nanoTime() deadline that lies the given number of seconds after now, but not after the given limit
+    public static long deadlineAfter(double seconds, long limit) {
+        long now = System.nanoTime();
+        double nanos = seconds * 1e9;
+        if (nanos >= limit - (double) now) {
+            return limit;
+        }
+        return now + (long) nanos;
+    }
+
+    private static boolean bool(String name, String value) {
+        if (!value.equals("true") && !value.equals("false")) {
+            throw new IllegalArgumentException("--" + name + " must be true or false but was " + value);
+        }
+        return value.equals("true");
+    }
+
+    private static int positive(String name, String value) {
+        int number = Integer.parseInt(value);
+        if (number <= 0) {
+            throw new IllegalArgumentException("--" + name + " must be positive but was " + number);
+        }
+        return number;
+    }
+}
@@ -0,0 +1,159 @@
+import java.util.Arrays;
+
+// Array based tour of one salesman with a position-of-city index.
+// Successor and predecessor lookups are O(1) and 2-opt reversals are applied in place, always reversing the
+// shorter side of the cycle. An open path is stored as a cycle whose closing edge between the first and the
+// last city is fixed: optimizers must never remove it, which keeps both endpoints where they are.
+public class Tour {
+
+    private final int[] order;    // Cities in tour order
+    private final int[] position; // Position of every city in order, -1 for cities not on this tour
+    private final boolean closed;
+    private final int first;      // First city of the original path, the export starts here
+    private final int last;       // Last city of the original path
+
+    public Tour(int[] path, int cityCount, boolean closed) {
+        this.order = path.clone();
+        this.position = new int[cityCount];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < order.length; i++) {
+            position[order[i]] = i;
+        }
+        this.closed = closed;
+        this.first = path.length > 0 ? path[0] : -1;
+        this.last = path.length > 0 ? path[path.length - 1] : -1;
+    }
+
+    public int size() {
+        return order.length;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // City at the given position
+    public int city(int index) {
+        return order[index];
+    }
+
+    // Position of the given city, -1 if it is not on this tour
+    public int position(int city) {
+        return position[city];
+    }
+
+    public boolean contains(int city) {
+        return position[city] != -1;
+    }
+
+    public int next(int city) {
+        int index = position[city] + 1;
+        return order[index == order.length ? 0 : index];
+    }
+
+    public int prev(int city) {
+        int index = position[city] - 1;
+        return order[index < 0 ? order.length - 1 : index];
+    }
+
+    // True if b lies on the part of the tour that runs forward from a to c (both ends included)
+    public boolean between(int a, int b, int c) {
+        int i = position[a], j = position[b], k = position[c];
+        if (i <= k) {
+            return i <= j && j <= k;
+        }
+        return j >= i || j <= k;
+    }
+
+    // True for the closing edge of an open path, which must stay in the tour
+    public boolean isFixed(int a, int b) {
+        return !closed && ((a == first && b == last) || (a == last && b == first));
+    }
+
+    // Reverses the part of the tour that runs forward from city "from" to city "to". As the tour is a cycle,
+    // reversing the complementary part gives the same tour, so the shorter of the two is reversed.
+    public void reverse(int from, int to) {
+        int n = order.length;
+        int i = position[from];
+        int j = position[to];
+        int length = j - i;
+        if (length < 0) {
+            length += n;
+        }
+        length++;
+        if (2 * length > n) {
+            // Reverse next(to) .. prev(from) instead
+            int start = j + 1 == n ? 0 : j + 1;
+            j = i == 0 ? n - 1 : i - 1;
+            i = start;
+            length = n - length;
+        }
+        for (int swaps = length / 2; swaps > 0; swaps--) {
+            int cityI = order[i];
+            int cityJ = order[j];
+            order[i] = cityJ;
+            position[cityJ] = i;
+            order[j] = cityI;
+            position[cityI] = j;
+            if (++i == n) i = 0;
+            if (--j < 0) j = n - 1;
+        }
+    }
+
+    // Reverses the cities at the positions from .. to (from <= to) and no other part of the cycle, so positions
+    // outside the range keep their cities. Sweeps that walk the positions in order rely on this.
+    public void reversePositions(int from, int to) {
+        while (from < to) {
+            int cityFrom = order[from];
+            int cityTo = order[to];
+            order[from] = cityTo;
+            position[cityTo] = from;
+            order[to] = cityFrom;
+            position[cityFrom] = to;
+            from++;
+            to--;
+        }
+    }
+
+    // Replaces the tour edges (a, b) and (c, d) with (a, c) and (b, d).
+    // Either b follows a and d follows c, or b precedes a and d precedes c.
+    public void twoOptMove(int a, int b, int c, int d) {
+        if (next(a) == b) {
+            reverse(b, c);
+        } else {
+            reverse(a, d);
+        }
+    }
+
+    // Length of the tour, without the fixed closing edge of an open path
+    public double length(DistanceProvider distances) {
+        double total = 0;
+        for (int i = 0; i < order.length; i++) {
+            int a = order[i];
+            int b = order[i + 1 == order.length ? 0 : i + 1];
+            if (!isFixed(a, b)) {
+                total += distances.distance(a, b);
+            }
+        }
+        return total;
+    }
+
+    // Returns the cities as a path that starts with the original first city.
+    // Open paths run away from the fixed closing edge, so they also end with the original last city.
+    public int[] toArray() {
+        int n = order.length;
+        int[] path = new int[n];
+        if (n == 0) {
+            return path;
+        }
+        int index = position[first];
+        boolean backwards = !closed && n > 2 && next(first) == last;
+        for (int k = 0; k < n; k++) {
+            path[k] = order[index];
+            index += backwards ? -1 : 1;
+            if (index == n) index = 0;
+            if (index < 0) index = n - 1;
+        }
+        return path;
+    }
+}
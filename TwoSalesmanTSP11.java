@@ -1,31 +1,139 @@
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
 import java.util.*;
 
 public class TwoSalesmenTSP {
 
-    private final double[][] graph;
+    private final DistanceProvider distances;
+    private final int[][] candidates; // Nearest neighbour lists, null when only the exhaustive 2-opt runs
+    private final SolverOptions options;
     private final int V;
 
-    public TwoSalesmenTSP(double[][] graph) {
-        this.graph = graph;
-        this.V = graph.length;
+    public TwoSalesmenTSP(DistanceProvider distances) {
+        this(distances, null, new SolverOptions());
+    }
+
+    public TwoSalesmenTSP(DistanceProvider distances, int[][] candidates, SolverOptions options) {
+        this.distances = distances;
+        this.candidates = candidates;
+        this.options = options;
+        this.V = distances.size();
     }
 
     public List<int[]> findTSPPaths() {
-        ChristofidesAlgorithm christofides = new ChristofidesAlgorithm(graph);
+        return findTSPPaths(Metrics.disabled());
+    }
+
+    // Finds the paths of both salesmen, recording every phase in the given metrics
+    public List<int[]> findTSPPaths(Metrics metrics) {
+        long deadline = options.deadline();
+        Metrics.Phase construction = metrics.begin("christofides");
+        ChristofidesAlgorithm christofides = new ChristofidesAlgorithm(distances);
         List<Integer> tspPath = christofides.findTSPPath();
+        construction.end(Double.NaN);
+
+        if (options.starts > 1) {
+            // Independent starts that split the TSP path at other cities and perturb the halves, run in parallel
+            Metrics.Phase multiStart = metrics.begin("multi-start");
+            int[][] best = MultiStartSolver.solve((start, random) -> {
+                List<Integer> tour = start == 0 ? tspPath : rotate(tspPath, random.nextInt(V), random.nextBoolean());
+                List<int[]> paths = intelligentSplitPath(tour);
+                if (start > 0) {
+                    for (int[] path : paths) {
+                        MultiStartSolver.perturb(path, true, 1 + path.length / 100, random);
+                    }
+                }
+                // Every start searches with its own ILS seed, drawn from the generator of the start, and on one
+                // thread, as the starts already run in parallel
+                paths = improvePaths(paths, deadline, Metrics.disabled(), random.nextLong(), 1);
+                return new int[][]{paths.get(0), paths.get(1)};
+            }, this::cost, options.starts, options.threads, deadline, options.seed);
+            multiStart.end(reportedCost(metrics, best[0], best[1]));
+            return Arrays.asList(best[0], best[1]);
+        }
 
         // Split the TSP path into two subtours intelligently
+        Metrics.Phase split = metrics.begin("split");
         List<int[]> paths = intelligentSplitPath(tspPath);
+        split.end(reportedCost(metrics, paths.get(0), paths.get(1)));
+        return improvePaths(paths, deadline, metrics, options.seed, options.threads);
+    }
 
+    private List<int[]> improvePaths(List<int[]> paths, long deadline, Metrics metrics, long seed, int threads) {
         // Optimize the paths using 2-opt algorithm
-        paths.set(0, optimizePath(paths.get(0)));
-        paths.set(1, optimizePath(paths.get(1)));
+        for (int k = 0; k < 2; k++) {
+            Metrics.Phase twoOpt = metrics.begin("2-opt path " + (k + 1));
+            paths.set(k, optimizePath(paths.get(k), threads, twoOpt));
+            twoOpt.end(Double.NaN);
+        }
+
+        // Move cities between the salesmen where that improves the chosen objective
+        if (options.interTour != null) {
+            Metrics.Phase phase = metrics.begin("inter-tour exchange");
+            int[][] exchanged = InterTourExchange.optimize(new int[][]{paths.get(0), paths.get(1)}, true, distances,
+                    candidates, options.interTour, SolverOptions.deadlineAfter(options.interTourSeconds, deadline));
+            paths = Arrays.asList(exchanged[0], exchanged[1]);
+            phase.end(reportedCost(metrics, paths.get(0), paths.get(1)));
+        }
+
+        // Deepen the local optimum with Lin-Kernighan moves, sharing the time budget by path size
+        if (options.lkSeconds > 0) {
+            Metrics.Phase phase = metrics.begin("lin-kernighan");
+            double share = options.lkSeconds * paths.get(0).length / Math.max(1, V);
+            paths.set(0, LinKernighan.optimize(paths.get(0), true, distances, candidates, SolverOptions.deadlineAfter(share, deadline)));
+            paths.set(1, LinKernighan.optimize(paths.get(1), true, distances, candidates, SolverOptions.deadlineAfter(options.lkSeconds - share, deadline)));
+            phase.end(reportedCost(metrics, paths.get(0), paths.get(1)));
+        }
+
+        // Continue with Or-opt and 3-opt moves, sharing the time budget by path size
+        if (options.orOptSeconds > 0) {
+            Metrics.Phase phase = metrics.begin("or-opt");
+            double share = options.orOptSeconds * paths.get(0).length / Math.max(1, V);
+            paths.set(0, optimizeWithOrOpt(paths.get(0), SolverOptions.deadlineAfter(share, deadline)));
+            paths.set(1, optimizeWithOrOpt(paths.get(1), SolverOptions.deadlineAfter(options.orOptSeconds - share, deadline)));
+            phase.end(reportedCost(metrics, paths.get(0), paths.get(1)));
+        }
+
+        // Spend the remaining budget on kicks and local repairs, keeping the best paths found
+        if (options.ilsSeconds > 0) {
+            Metrics.Phase phase = metrics.begin("iterated local search");
+            IteratedLocalSearch.Listener progress = options.starts == 1 ? IteratedLocalSearch.progressPrinter(System.err) : null;
+            int[][] improved = IteratedLocalSearch.optimize(new int[][]{paths.get(0), paths.get(1)}, true, distances,
+                    candidates, options.acceptance, SolverOptions.deadlineAfter(options.ilsSeconds, deadline), seed, progress);
+            paths = Arrays.asList(improved[0], improved[1]);
+            phase.end(reportedCost(metrics, paths.get(0), paths.get(1)));
+        }
 
         return paths;
     }
 
+    // Cost the solver minimizes: the sum of both tour lengths, or the longer tour for the makespan objective
+    private double cost(int[][] paths) {
+        double distance1 = calculatePathDistance(paths[0]);
+        double distance2 = calculatePathDistance(paths[1]);
+        if (options.interTour == InterTourExchange.Objective.MAKESPAN) {
+            return Math.max(distance1, distance2);
+        }
+        return distance1 + distance2;
+    }
+
+    // Total length of both tours for the metrics report, NaN without computing it when metrics are disabled
+    private double reportedCost(Metrics metrics, int[] path1, int[] path2) {
+        return metrics.enabled() ? calculatePathDistance(path1) + calculatePathDistance(path2) : Double.NaN;
+    }
+
+    // Returns the closed TSP path started at another position and optionally walked in the other direction
+    private static List<Integer> rotate(List<Integer> tspPath, int offset, boolean reversed) {
+        int n = tspPath.size() - 1; // The last entry repeats the first city
+        List<Integer> rotated = new ArrayList<>(n + 1);
+        for (int i = 0; i < n; i++) {
+            int index = reversed ? offset - i : offset + i;
+            rotated.add(tspPath.get(Math.floorMod(index, n)));
+        }
+        rotated.add(rotated.get(0));
+        return rotated;
+    }
+
     private List<int[]> intelligentSplitPath(List<Integer> tspPath) {
         List<Integer> path1 = new ArrayList<>();
         List<Integer> path2 = new ArrayList<>();
@@ -61,224 +169,282 @@ public class TwoSalesmenTSP {
             return 0;
         }
         int lastCity = path.get(path.size() - 1);
-        return graph[lastCity][city];
+        return distances.distance(lastCity, city);
     }
 
     private double calculatePathDistance(int[] path) {
         double totalDistance = 0.0;
         for (int i = 0; i < path.length - 1; i++) {
-            totalDistance += graph[path[i]][path[i + 1]];
+            totalDistance += distances.distance(path[i], path[i + 1]);
         }
-        totalDistance += graph[path[path.length - 1]][path[0]]; // Returning to the start point
+        totalDistance += distances.distance(path[path.length - 1], path[0]); // Returning to the start point
         return totalDistance;
     }
 
-    private int[] optimizePath(int[] path) {
-        boolean improvement = true;
-        while (improvement) {
-            improvement = false;
-            for (int i = 1; i < path.length - 2; i++) {
-                for (int j = i + 1; j < path.length - 1; j++) {
-                    if (j - i == 1) continue;  // Skip adjacent nodes
-                    double delta = -graph[path[i]][path[i + 1]] - graph[path[j]][path[j + 1]]
-                            + graph[path[i]][path[j]] + graph[path[i + 1]][path[j + 1]];
-                    if (delta < 0) {
-                        reverseSegment(path, i + 1, j);
-                        improvement = true;
-                    }
-                }
-            }
-        }
-        return path;
+    private int[] optimizeWithOrOpt(int[] path, long deadline) {
+        Tour tour = new Tour(path, V, true);
+        OrOpt.optimize(tour, distances, candidates, deadline);
+        return tour.toArray();
     }
 
-    private void reverseSegment(int[] path, int start, int end) {
-        while (start < end) {
-            int temp = path[start];
-            path[start] = path[end];
-            path[end] = temp;
-            start++;
-            end--;
+    private int[] optimizePath(int[] path, int threads, Metrics.Phase phase) {
+        if (options.twoOpt == SolverOptions.TwoOptMode.NEIGHBOR) {
+            return NeighborListTwoOpt.optimize(path, distances, candidates, true, phase);
+        }
+        if (options.twoOpt == SolverOptions.TwoOptMode.PARALLEL) {
+            return ParallelTwoOpt.optimize(path, distances, candidates, true, threads, phase);
         }
+        return ExhaustiveTwoOpt.optimize(path, distances, phase);
     }
 
-    private static class ChristofidesAlgorithm {
+    static class ChristofidesAlgorithm {
+
+        private static final int MST_NEIGHBORS = 10; // Nearest neighbours per city that let the MST skip k-d tree queries
 
-        private final double[][] graph;
+        private final DistanceProvider distances;
         private final int V;
 
-        public ChristofidesAlgorithm(double[][] graph) {
-            this.graph = graph;
-            this.V = graph.length;
+        public ChristofidesAlgorithm(DistanceProvider distances) {
+            this.distances = distances;
+            this.V = distances.size();
         }
 
         public List<Integer> findTSPPath() {
-            List<Edge> mstEdges = findMST();
-            Set<Integer> oddDegreeVertices = findOddDegreeVertices(mstEdges);
-            List<Edge> minWeightMatching = findMinWeightMatching(oddDegreeVertices);
-            List<Edge> eulerianCircuitEdges = new ArrayList<>(mstEdges);
-            eulerianCircuitEdges.addAll(minWeightMatching);
-            List<Integer> eulerianCircuit = findEulerianCircuit(eulerianCircuitEdges);
+            double[][] points = coordinates();
+            int[][] mstEdges = points != null ? EuclideanMst.build(points[0], points[1], MST_NEIGHBORS) : findMST();
+            int[] oddDegreeVertices = findOddDegreeVertices(mstEdges);
+            int[][] minWeightMatching = findMinWeightMatching(oddDegreeVertices, points);
+            int[] eulerianCircuit = findEulerianCircuit(mstEdges, minWeightMatching);
             return createHamiltonianCircuit(eulerianCircuit);
         }
 
-        private List<Edge> findMST() {
+        // Coordinates of the cities as {xs, ys}, or null if the distances do not come from points in the plane
+        private double[][] coordinates() {
+            if (!(distances instanceof CoordinateDistanceProvider)) {
+                return null;
+            }
+            CoordinateDistanceProvider points = (CoordinateDistanceProvider) distances;
+            double[] xs = new double[V];
+            double[] ys = new double[V];
+            for (int i = 0; i < V; i++) {
+                xs[i] = points.x(i);
+                ys[i] = points.y(i);
+            }
+            return new double[][]{xs, ys};
+        }
+
+        // Dense Prim for distances without coordinates, returns the tree edges as {from, to} arrays
+        private int[][] findMST() {
+            int[][] mstEdges = {new int[Math.max(0, V - 1)], new int[Math.max(0, V - 1)]};
             boolean[] inMST = new boolean[V];
             double[] key = new double[V];
             int[] parent = new int[V];
-            PriorityQueue<Edge> pq = new PriorityQueue<>(Comparator.comparingDouble(e -> e.weight));
-
             Arrays.fill(key, Double.MAX_VALUE);
             key[0] = 0;
-            pq.add(new Edge(-1, 0, 0));  // Start with the first node
 
-            List<Edge> mstEdges = new ArrayList<>();
-            while (!pq.isEmpty()) {
-                Edge edge = pq.poll();
-                int u = edge.to;
-                if (inMST[u]) continue;
+            for (int added = 0; added < V; added++) {
+                int u = -1;
+                for (int v = 0; v < V; v++) {
+                    if (!inMST[v] && (u == -1 || key[v] < key[u])) {
+                        u = v;
+                    }
+                }
                 inMST[u] = true;
-                if (edge.from != -1) mstEdges.add(edge);
+                if (added > 0) {
+                    mstEdges[0][added - 1] = parent[u];
+                    mstEdges[1][added - 1] = u;
+                }
 
                 for (int v = 0; v < V; v++) {
-                    if (graph[u][v] != 0 && !inMST[v] && graph[u][v] < key[v]) {
+                    if (inMST[v]) continue;
+                    double weight = distances.distance(u, v);
+                    if (weight < key[v]) {
                         parent[v] = u;
-                        key[v] = graph[u][v];
-                        pq.add(new Edge(u, v, graph[u][v]));
+                        key[v] = weight;
                     }
                 }
             }
             return mstEdges;
         }
 
-        private Set<Integer> findOddDegreeVertices(List<Edge> mstEdges) {
+        private int[] findOddDegreeVertices(int[][] mstEdges) {
             int[] degree = new int[V];
-            for (Edge edge : mstEdges) {
-                degree[edge.from]++;
-                degree[edge.to]++;
+            for (int i = 0; i < mstEdges[0].length; i++) {
+                degree[mstEdges[0][i]]++;
+                degree[mstEdges[1][i]]++;
             }
 
-            Set<Integer> oddDegreeVertices = new HashSet<>();
+            int count = 0;
+            for (int i = 0; i < V; i++) {
+                if (degree[i] % 2 != 0) {
+                    count++;
+                }
+            }
+            int[] oddDegreeVertices = new int[count];
+            count = 0;
             for (int i = 0; i < V; i++) {
                 if (degree[i] % 2 != 0) {
-                    oddDegreeVertices.add(i);
+                    oddDegreeVertices[count++] = i;
                 }
             }
             return oddDegreeVertices;
         }
 
-        private List<Edge> findMinWeightMatching(Set<Integer> oddDegreeVertices) {
-            List<Integer> vertices = new ArrayList<>(oddDegreeVertices);
-            List<Edge> matching = new ArrayList<>();
-
-            while (!vertices.isEmpty()) {
-                int v = vertices.get(0);
-                int closest = -1;
-                double minWeight = Double.MAX_VALUE;
+        // Greedy matching: every unmatched vertex in ascending order is paired with its closest unmatched vertex.
+        // With coordinates the closest vertex comes from a k-d tree over the odd vertices, otherwise from a scan.
+        private int[][] findMinWeightMatching(int[] oddDegreeVertices, double[][] points) {
+            int m = oddDegreeVertices.length;
+            int[][] matching = {new int[m / 2], new int[m / 2]};
+            KdTree index = null;
+            if (points != null) {
+                double[] xs = new double[m];
+                double[] ys = new double[m];
+                for (int i = 0; i < m; i++) {
+                    xs[i] = points[0][oddDegreeVertices[i]];
+                    ys[i] = points[1][oddDegreeVertices[i]];
+                }
+                index = new KdTree(xs, ys);
+            }
 
-                for (int u : vertices) {
-                    if (v != u && graph[v][u] < minWeight) {
-                        minWeight = graph[v][u];
-                        closest = u;
+            boolean[] matched = new boolean[m];
+            int pairs = 0;
+            for (int i = 0; i < m; i++) {
+                if (matched[i]) continue;
+                matched[i] = true;
+                int closest;
+                if (index != null) {
+                    index.remove(i);
+                    closest = index.nearest(i);
+                    index.remove(closest);
+                } else {
+                    closest = -1;
+                    double minWeight = Double.MAX_VALUE;
+                    for (int j = i + 1; j < m; j++) {
+                        if (matched[j]) continue;
+                        double weight = distances.distance(oddDegreeVertices[i], oddDegreeVertices[j]);
+                        if (weight < minWeight) {
+                            minWeight = weight;
+                            closest = j;
+                        }
                     }
                 }
-
-                matching.add(new Edge(v, closest, graph[v][closest]));
-                vertices.remove(Integer.valueOf(v));
-                vertices.remove(Integer.valueOf(closest));
+                matched[closest] = true;
+                matching[0][pairs] = oddDegreeVertices[i];
+                matching[1][pairs] = oddDegreeVertices[closest];
+                pairs++;
             }
-
             return matching;
         }
 
-        private List<Integer> findEulerianCircuit(List<Edge> eulerianCircuitEdges) {
-            Map<Integer, List<Integer>> adj = new HashMap<>();
-            for (Edge edge : eulerianCircuitEdges) {
-                adj.computeIfAbsent(edge.from, k -> new ArrayList<>()).add(edge.to);
-                adj.computeIfAbsent(edge.to, k -> new ArrayList<>()).add(edge.from);
+        // Hierholzer's algorithm on a compressed adjacency array of edge ids, starting at city 0
+        private int[] findEulerianCircuit(int[][] mstEdges, int[][] matching) {
+            int mstCount = mstEdges[0].length;
+            int edgeCount = mstCount + matching[0].length;
+            int[] from = new int[edgeCount];
+            int[] to = new int[edgeCount];
+            System.arraycopy(mstEdges[0], 0, from, 0, mstCount);
+            System.arraycopy(mstEdges[1], 0, to, 0, mstCount);
+            System.arraycopy(matching[0], 0, from, mstCount, matching[0].length);
+            System.arraycopy(matching[1], 0, to, mstCount, matching[1].length);
+
+            // offset[v]..offset[v + 1] holds the edges incident to v
+            int[] offset = new int[V + 1];
+            for (int e = 0; e < edgeCount; e++) {
+                offset[from[e] + 1]++;
+                offset[to[e] + 1]++;
+            }
+            for (int v = 0; v < V; v++) {
+                offset[v + 1] += offset[v];
+            }
+            int[] adjacency = new int[2 * edgeCount];
+            int[] fill = Arrays.copyOf(offset, V);
+            for (int e = 0; e < edgeCount; e++) {
+                adjacency[fill[from[e]]++] = e;
+                adjacency[fill[to[e]]++] = e;
             }
 
-            List<Integer> circuit = new ArrayList<>();
-            Stack<Integer> currPath = new Stack<>();
-            currPath.push(0);
-            int currVertex = 0;
-
-            while (!currPath.isEmpty()) {
-                if (adj.get(currVertex) != null && !adj.get(currVertex).isEmpty()) {
-                    currPath.push(currVertex);
-                    int nextVertex = adj.get(currVertex).remove(0);
-                    adj.get(nextVertex).remove(Integer.valueOf(currVertex));
-                    currVertex = nextVertex;
+            boolean[] used = new boolean[edgeCount];
+            int[] nextEdge = Arrays.copyOf(offset, V); // First adjacency entry of each vertex not looked at yet
+            int[] circuit = new int[edgeCount + 1];
+            int circuitSize = 0;
+            int[] stack = new int[edgeCount + 1];
+            int stackSize = 0;
+            stack[stackSize++] = 0;
+
+            while (stackSize > 0) {
+                int vertex = stack[stackSize - 1];
+                while (nextEdge[vertex] < offset[vertex + 1] && used[adjacency[nextEdge[vertex]]]) {
+                    nextEdge[vertex]++;
+                }
+                if (nextEdge[vertex] < offset[vertex + 1]) {
+                    int e = adjacency[nextEdge[vertex]++];
+                    used[e] = true;
+                    stack[stackSize++] = from[e] == vertex ? to[e] : from[e];
                 } else {
-                    circuit.add(currVertex);
-                    currVertex = currPath.pop();
+                    circuit[circuitSize++] = vertex;
+                    stackSize--;
                 }
             }
-
-            return circuit;
+            return Arrays.copyOf(circuit, circuitSize);
         }
 
-        private List<Integer> createHamiltonianCircuit(List<Integer> eulerianCircuit) {
-            List<Integer> hamiltonianCircuit = new ArrayList<>();
-            Set<Integer> visited = new HashSet<>();
+        private List<Integer> createHamiltonianCircuit(int[] eulerianCircuit) {
+            List<Integer> hamiltonianCircuit = new ArrayList<>(V + 1);
+            boolean[] visited = new boolean[V];
             for (int vertex : eulerianCircuit) {
-                if (visited.add(vertex)) {
+                if (!visited[vertex]) {
+                    visited[vertex] = true;
                     hamiltonianCircuit.add(vertex);
                 }
             }
             hamiltonianCircuit.add(hamiltonianCircuit.get(0)); // Return to the starting point
             return hamiltonianCircuit;
         }
-
-        private static class Edge {
-            int from;
-            int to;
-            double weight;
-
-            Edge(int from, int to, double weight) {
-                this.from = from;
-                this.to = to;
-                this.weight = weight;
-            }
-        }
     }
 
     public static void main(String[] args) {
       
-        Scanner scan = new Scanner(System.in);
-        String filename = "example-input-1.txt";
-        List<City> cities = new ArrayList<>();
-
-        try (Scanner fileScanner = new Scanner(new File(filename))) {
-            while (fileScanner.hasNextLine()) {
-                String[] parts = fileScanner.nextLine().split(" ");
-                int id = Integer.parseInt(parts[0]);
-                double x = Double.parseDouble(parts[1]);
-                double y = Double.parseDouble(parts[2]);
-                cities.add(new City(id, x, y));
-            }
-        } catch (FileNotFoundException e) {
+        SolverOptions options = SolverOptions.parse(args, "example-input-1.txt", null);
+        // The Christofides solver prints its paths and has no construction choice, checkpoints, batches or bound
+        options.reject("TwoSalesmenTSP", "output", "construction", "renumber", "checkpoint", "resume", "diff", "batch",
+                "batch-output", "bound-seconds", "target-gap");
+        String filename = options.inputFile;
+        int cachedRows = 0; // Number of distance rows to keep cached, 0 computes every distance on demand
+        Metrics metrics = Metrics.of(options); // Phase timings and move counts, disabled unless asked for
+        Metrics.Phase reading = metrics.begin("read input");
+        CityFile file;
+        try {
+            file = CityFile.read(filename);
+        } catch (NoSuchFileException e) {
             System.err.println("File not found: " + filename);
             return;
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        if (options.progress) {
+            System.err.println(file.summary());
         }
 
-        
-
-        int V = cities.size();
-        double[][] graph = new double[V][V];
-
+        int V = file.size();
+        double[] xs = new double[V];
+        double[] ys = new double[V];
         for (int i = 0; i < V; i++) {
-            for (int j = 0; j < V; j++) {
-                if (i != j) {
-                    graph[i][j] = euclideanDistance(cities.get(i), cities.get(j));
-                } else {
-                    graph[i][j] = 0;
-                }
-            }
+            xs[i] = file.xs[i];
+            ys[i] = file.ys[i];
         }
+        reading.end(Double.NaN);
+        DistanceProvider distances = new CoordinateDistanceProvider(xs, ys, cachedRows);
 
-        TwoSalesmenTSP tsp = new TwoSalesmenTSP(graph);
-        List<int[]> paths = tsp.findTSPPaths();
+        Metrics.Phase indexing = metrics.begin("spatial index");
+        int[][] candidates = null;
+        if (options.needsCandidates()) {
+            candidates = new KdTree(xs, ys).candidateLists(options.neighbors);
+        }
+        indexing.end(Double.NaN);
+
+        TwoSalesmenTSP tsp = new TwoSalesmenTSP(distances, candidates, options);
+        List<int[]> paths = tsp.findTSPPaths(metrics);
 
         double distance1 = tsp.calculatePathDistance(paths.get(0));
         double distance2 = tsp.calculatePathDistance(paths.get(1));
@@ -289,21 +455,13 @@ public class TwoSalesmenTSP {
         System.out.println("Salesman 2 Path: " + Arrays.toString(paths.get(1)));
         System.out.println("Salesman 2 Distance: " + distance2);
         System.out.println("Total distance: " + (distance1 + distance2));
-    }
 
-    private static double euclideanDistance(City city1, City city2) {
-        return Math.sqrt(Math.pow(city1.x - city2.x, 2) + Math.pow(city1.y - city2.y, 2));
-    }
-
-    private static class City {
-        int id;
-        double x;
-        double y;
-
-        City(int id, double x, double y) {
-            this.id = id;
-            this.x = x;
-            this.y = y;
+        if (options.metricsFile != null) {
+            try {
+                metrics.write(options.metricsFile);
+            } catch (IOException e) {
+                System.err.println("Cannot write metrics to " + options.metricsFile + ": " + e.getMessage());
+            }
         }
     }
-}
+}
\ No newline at end of file
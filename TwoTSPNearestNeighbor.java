@@ -1,78 +1,418 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
 public class TwoTSPNearestNeighbor {
 
+    private static final int GAIN_BLOCK = 256; // 2-opt moves evaluated per call of the distance kernel
+
     public static void main(String[] args) {
-        String inputFile = "test-input-4.txt"; // Path to the input file containing city coordinates
-        String outputFile = "test-output-4.txt"; // Path to the output file to write results
+        // Defaults can be overridden with --input=..., --output=..., --two-opt=full|neighbor|parallel, --neighbors=k,
+        // --lk-seconds=s, --or-opt-seconds=s, --ils-seconds=s, --acceptance=better|anneal, --inter-tour=none|total|makespan,
+        // --inter-tour-seconds=s, --starts=n, --threads=n, --time-limit=s, --seed=n, --metrics=report.json|report.csv,
+        // --progress=true, --construction=nearest|hilbert, --renumber=true, --checkpoint=file, --bound-seconds=s and
+        // --target-gap=fraction.
+        // --resume=checkpoint with --diff=file updates a checkpoint instead of solving the input (see IncrementalSolver).
+        // --batch=directory|- solves many inputs instead (see BatchSolver), with the outputs in --batch-output=directory
+        SolverOptions options = SolverOptions.parse(args, "test-input-4.txt", "test-output-4.txt");
+        if (options.batch != null) {
+            try {
+                BatchSolver.run(options);
+            } catch (IOException e) {
+                e.printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+        String inputFile = options.inputFile; // Path to the input file containing city coordinates
+        String outputFile = options.outputFile; // Path to the output file to write results
 
+        Metrics metrics = Metrics.of(options); // Phase timings and move counts, disabled unless asked for
         try {
-            // Read input file and get the list of city coordinates
-            List<int[]> cities = readInput(inputFile);
-            
-            // Define starting cities for both salesmen
-            int startCity1 = 0; // Starting city index for salesman 1
-            int startCity2 = 1; // Starting city index for salesman 2
-
-            // Generate initial paths for both salesmen using the nearest neighbor algorithm
-            int[][] paths = nearestNeighborForTwo(cities, startCity1, startCity2);
-            int[] path1 = paths[0]; // Path for salesman 1
-            int[] path2 = paths[1]; // Path for salesman 2
-
-            // Optimize the generated paths using the 2-opt algorithm
-            path1 = optimizeWith2Opt(path1, cities);
-            path2 = optimizeWith2Opt(path2, cities);
-
-            // Calculate the total cost for each path
-            int cost1 = calculateCost(path1, cities);
-            int cost2 = calculateCost(path2, cities);
-            int totalCost = cost1 + cost2; // Sum of costs of both paths
-
-            // Write the results to the output file
-            try (FileWriter writer = new FileWriter(outputFile)) {
-                writer.write(totalCost + "\n"); // Write total cost
-                writer.write(cost1 + " " + (path1.length) + "\n"); // Write cost and number of cities for path1
-                for (int i = 0; i < path1.length; i++) {
-                    writer.write(path1[i] + "\n"); // Write each city in path1
+            List<int[]> cities;
+            int[][] paths;
+            if (options.resumeFile != null) {
+                // Update the paths of the checkpoint for the added and removed cities
+                Metrics.Phase reading = metrics.begin("read checkpoint");
+                Checkpoint checkpoint = Checkpoint.read(options.resumeFile);
+                IncrementalSolver.Diff diff = options.diffFile != null ? IncrementalSolver.Diff.read(options.diffFile)
+                        : new IncrementalSolver.Diff(new int[0], new int[0], new int[0]);
+                reading.end(Double.NaN);
+                long start = System.nanoTime();
+                Metrics.Phase updating = metrics.begin("incremental update");
+                Checkpoint updated = IncrementalSolver.update(checkpoint, diff, options.neighbors, updating);
+                updating.end(Double.NaN);
+                cities = updated.cities();
+                paths = updated.paths;
+                System.err.printf(Locale.ROOT, "Updated %d cities (%d added, %d removed) in %.1f ms%n", cities.size(),
+                        diff.addedXs.length, diff.removed.length, (System.nanoTime() - start) / 1e6);
+                if (options.boundSeconds > 0) {
+                    // Removed cities can leave a salesman without cities, which reportGap refuses to compare
+                    reportGap(paths, cities, lowerBound(cities, options, options.deadline(), metrics));
                 }
-                writer.write("\n");
-                writer.write(cost2 + " " + (path2.length) + "\n"); // Write cost and number of cities for path2
-                for (int i = 0; i < path2.length - 1; i++) {
-                    writer.write(path2[i] + "\n"); // Write each city in path2
+            } else {
+                // Read input file and get the list of city coordinates
+                Metrics.Phase reading = metrics.begin("read input");
+                CityFile file = CityFile.read(inputFile);
+                if (options.progress) {
+                    System.err.println(file.summary());
                 }
+                cities = cityList(file);
+                reading.end(Double.NaN);
+
+                paths = solve(cities, options, metrics);
+            }
+
+            Metrics.Phase writing = metrics.begin("write output");
+            writeOutput(outputFile, paths[0], paths[1], cities);
+            if (options.checkpointFile != null) {
+                Checkpoint.of(cities, paths).write(options.checkpointFile);
+            }
+            writing.end(Double.NaN);
+            if (options.metricsFile != null) {
+                metrics.write(options.metricsFile);
             }
         } catch (IOException e) {
             e.printStackTrace(); // Print stack trace in case of an IOException
         }
     }
 
+    // Builds and improves the paths of both salesmen with the configured stages
+    public static int[][] solve(List<int[]> cities, SolverOptions options) {
+        return solve(cities, options, Metrics.disabled());
+    }
+
+    // Builds and improves the paths of both salesmen, recording every phase in the given metrics
+    public static int[][] solve(List<int[]> cities, SolverOptions options, Metrics metrics) {
+        if (cities.size() < 2) {
+            // Too few cities to give each salesman one, the first salesman visits them all
+            int[][] paths = {new int[cities.size()], new int[0]};
+            if (options.boundSeconds > 0) {
+                reportGap(paths, cities, 0);
+            }
+            return paths;
+        }
+        if (!options.renumber) {
+            return solve(cities, options, metrics, 0, 1);
+        }
+        // Solve with the cities numbered in Hilbert order, so that nearby cities are also nearby in memory, and
+        // translate the paths back to the original numbers. The salesmen still start at the original cities 0 and 1.
+        Metrics.Phase renumbering = metrics.begin("renumber");
+        int[] order = hilbertOrder(cities);
+        int[] position = HilbertCurve.inverse(order);
+        List<int[]> renumbered = new ArrayList<>(cities.size());
+        for (int city : order) {
+            renumbered.add(cities.get(city).clone()); // Fresh copies are allocated next to each other
+        }
+        renumbering.end(Double.NaN);
+        int[][] paths = solve(renumbered, options, metrics, position[0], position[1]);
+        for (int[] path : paths) {
+            for (int i = 0; i < path.length; i++) {
+                path[i] = order[path[i]];
+            }
+        }
+        return paths;
+    }
+
+    // Builds and improves the paths of both salesmen, the nearest neighbor construction starting at the given cities
+    private static int[][] solve(List<int[]> cities, SolverOptions options, Metrics metrics, int startCity1, int startCity2) {
+        long deadline = options.deadline(); // Wall-clock limit of the whole run
+        boolean hilbert = options.construction == SolverOptions.Construction.HILBERT;
+        Metrics.Phase indexing = metrics.begin("spatial index");
+        KdTree index = hilbert && !options.needsCandidates() ? null : buildIndex(cities);
+
+        // Candidate lists have to be built before the construction removes visited cities from the index
+        int[][] candidates = null;
+        if (options.needsCandidates()) {
+            candidates = index.candidateLists(options.neighbors);
+        }
+        indexing.end(Double.NaN);
+        int[][] sharedCandidates = candidates;
+        DistanceProvider distances = distances(cities);
+
+        // Lower bound for the gap report, and the total cost at which the improvement stages stop
+        long bound = options.boundSeconds > 0 ? lowerBound(cities, options, deadline, metrics) : 0;
+        long targetCost = options.targetGap > 0 ? (long) Math.floor(bound * (1 + options.targetGap)) : -1;
+
+        int[][] result;
+        if (options.starts > 1) {
+            // Independent starts from other start cities and perturbed paths, run in parallel
+            Metrics.Phase multiStart = metrics.begin("multi-start");
+            int[][] curve = hilbert ? hilbertForTwo(cities) : null;
+            int[][] best = MultiStartSolver.solve((start, random) -> {
+                int[][] paths;
+                if (hilbert) {
+                    paths = new int[][]{curve[0].clone(), curve[1].clone()};
+                    if (start > 0) {
+                        for (int[] path : paths) {
+                            MultiStartSolver.perturb(path, false, 1 + path.length / 100, random);
+                        }
+                    }
+                } else if (start == 0) {
+                    paths = nearestNeighborForTwo(cities, buildIndex(cities), startCity1, startCity2);
+                } else {
+                    int start1 = random.nextInt(cities.size());
+                    int start2 = (start1 + 1 + random.nextInt(cities.size() - 1)) % cities.size();
+                    paths = nearestNeighborForTwo(cities, buildIndex(cities), start1, start2);
+                    for (int[] path : paths) {
+                        MultiStartSolver.perturb(path, false, 1 + path.length / 100, random);
+                    }
+                }
+                // Every start searches with its own ILS seed, drawn from the generator of the start
+                SolverOptions startOptions = options.copy();
+                startOptions.seed = random.nextLong();
+                startOptions.threads = 1; // The starts already run in parallel, a parallel 2-opt would oversubscribe
+                return improve(paths, cities, distances, sharedCandidates, startOptions, deadline, Metrics.disabled(),
+                        targetCost);
+            }, paths -> cost(paths, cities, options), options.starts, options.threads, deadline, options.seed);
+            multiStart.end(reportedCost(metrics, best, cities));
+            result = best;
+        } else {
+            // Generate initial paths for both salesmen with the configured construction
+            Metrics.Phase construction = metrics.begin(hilbert ? "hilbert curve" : "nearest neighbor");
+            int[][] paths = hilbert ? hilbertForTwo(cities) : nearestNeighborForTwo(cities, index, startCity1, startCity2);
+            construction.end(reportedCost(metrics, paths, cities));
+            result = improve(paths, cities, distances, candidates, options, deadline, metrics, targetCost);
+        }
+
+        if (options.boundSeconds > 0) {
+            reportGap(result, cities, bound);
+        }
+        return result;
+    }
+
+    // Prints the total cost of the paths next to the lower bound. The bound assumes that each salesman visits at
+    // least one city, so it is not compared with paths of which one is empty.
+    private static void reportGap(int[][] paths, List<int[]> cities, long bound) {
+        if (paths[0].length == 0 || paths[1].length == 0) {
+            System.err.printf("No gap report: path %d is empty, the lower bound needs a city for each salesman%n",
+                    paths[0].length == 0 ? 1 : 2);
+            return;
+        }
+        long cost = (long) calculateCost(paths[0], cities) + calculateCost(paths[1], cities);
+        System.err.printf(Locale.ROOT, "Total cost %d, lower bound %d, gap at most %.2f%%%n", cost, bound,
+                bound > 0 ? 100.0 * (cost - bound) / bound : 0);
+    }
+
+    // Held-Karp lower bound on the total cost (see LowerBound), with the cost of a Hilbert curve solution scaling the
+    // subgradient steps. The iterations stop early once the curve is already within the target gap.
+    // Fewer than two cities cannot give each salesman one, so they get the trivial bound 0.
+    private static long lowerBound(List<int[]> cities, SolverOptions options, long deadline, Metrics metrics) {
+        if (cities.size() < 2) {
+            System.err.printf("No lower bound: %d cities cannot give each salesman one%n", cities.size());
+            return 0;
+        }
+        Metrics.Phase phase = metrics.begin("lower bound");
+        int[][] curve = hilbertForTwo(cities);
+        double curveCost = (double) calculateCost(curve[0], cities) + calculateCost(curve[1], cities);
+        long bound = LowerBound.compute(IntDistanceKernel.of(cities), curveCost, Integer.MAX_VALUE,
+                SolverOptions.deadlineAfter(options.boundSeconds, deadline), options.targetGap);
+        phase.end(bound);
+        return bound;
+    }
+
+    // Runs the configured improvement stages on the paths of both salesmen
+    public static int[][] improve(int[][] paths, List<int[]> cities, DistanceProvider distances, int[][] candidates,
+                                  SolverOptions options, long deadline) {
+        return improve(paths, cities, distances, candidates, options, deadline, Metrics.disabled());
+    }
+
+    // Runs the configured improvement stages, recording each of them in the given metrics
+    public static int[][] improve(int[][] paths, List<int[]> cities, DistanceProvider distances, int[][] candidates,
+                                  SolverOptions options, long deadline, Metrics metrics) {
+        return improve(paths, cities, distances, candidates, options, deadline, metrics, -1);
+    }
+
+    // Runs the configured improvement stages until the total cost is at most the target cost, -1 for no target
+    private static int[][] improve(int[][] paths, List<int[]> cities, DistanceProvider distances, int[][] candidates,
+                                   SolverOptions options, long deadline, Metrics metrics, long targetCost) {
+        int[] path1 = paths[0]; // Path for salesman 1
+        int[] path2 = paths[1]; // Path for salesman 2
+
+        // Optimize the generated paths using the 2-opt algorithm
+        Metrics.Phase twoOpt1 = metrics.begin("2-opt path 1");
+        if (options.twoOpt == SolverOptions.TwoOptMode.NEIGHBOR) {
+            path1 = NeighborListTwoOpt.optimize(path1, distances, candidates, false, twoOpt1);
+        } else if (options.twoOpt == SolverOptions.TwoOptMode.PARALLEL) {
+            path1 = ParallelTwoOpt.optimize(path1, distances, candidates, false, options.threads, twoOpt1);
+        } else {
+            path1 = optimizeWith2Opt(path1, cities, twoOpt1);
+        }
+        twoOpt1.end(Double.NaN);
+        Metrics.Phase twoOpt2 = metrics.begin("2-opt path 2");
+        if (options.twoOpt == SolverOptions.TwoOptMode.NEIGHBOR) {
+            path2 = NeighborListTwoOpt.optimize(path2, distances, candidates, false, twoOpt2);
+        } else if (options.twoOpt == SolverOptions.TwoOptMode.PARALLEL) {
+            path2 = ParallelTwoOpt.optimize(path2, distances, candidates, false, options.threads, twoOpt2);
+        } else {
+            path2 = optimizeWith2Opt(path2, cities, twoOpt2);
+        }
+        twoOpt2.end(Double.NaN);
+
+        // Move cities between the salesmen where that improves the chosen objective
+        if (options.interTour != null && !reached(path1, path2, cities, targetCost)) {
+            Metrics.Phase phase = metrics.begin("inter-tour exchange");
+            int[][] exchanged = InterTourExchange.optimize(new int[][]{path1, path2}, false, distances, candidates,
+                    options.interTour, SolverOptions.deadlineAfter(options.interTourSeconds, deadline));
+            path1 = exchanged[0];
+            path2 = exchanged[1];
+            phase.end(reportedCost(metrics, exchanged, cities));
+        }
+
+        // Deepen the local optimum with Lin-Kernighan moves, sharing the time budget by path size
+        if (options.lkSeconds > 0 && !reached(path1, path2, cities, targetCost)) {
+            Metrics.Phase phase = metrics.begin("lin-kernighan");
+            double share1 = options.lkSeconds * path1.length / cities.size();
+            path1 = LinKernighan.optimize(path1, false, distances, candidates, SolverOptions.deadlineAfter(share1, deadline));
+            path2 = LinKernighan.optimize(path2, false, distances, candidates, SolverOptions.deadlineAfter(options.lkSeconds - share1, deadline));
+            phase.end(reportedCost(metrics, new int[][]{path1, path2}, cities));
+        }
+
+        // Continue from the 2-opt optimum with Or-opt and 3-opt moves, sharing the time budget by path size
+        if (options.orOptSeconds > 0 && !reached(path1, path2, cities, targetCost)) {
+            Metrics.Phase phase = metrics.begin("or-opt");
+            double share1 = options.orOptSeconds * path1.length / cities.size();
+            path1 = optimizeWithOrOpt(path1, distances, candidates, SolverOptions.deadlineAfter(share1, deadline));
+            path2 = optimizeWithOrOpt(path2, distances, candidates, SolverOptions.deadlineAfter(options.orOptSeconds - share1, deadline));
+            phase.end(reportedCost(metrics, new int[][]{path1, path2}, cities));
+        }
+
+        // Spend the remaining budget on kicks and local repairs, keeping the best paths found
+        if (options.ilsSeconds > 0 && !reached(path1, path2, cities, targetCost)) {
+            Metrics.Phase phase = metrics.begin("iterated local search");
+            IteratedLocalSearch.Listener progress = options.starts == 1 ? IteratedLocalSearch.progressPrinter(System.err) : null;
+            int[][] improved = IteratedLocalSearch.optimize(new int[][]{path1, path2}, false, distances, candidates,
+                    options.acceptance, SolverOptions.deadlineAfter(options.ilsSeconds, deadline), options.seed, progress,
+                    targetCost < 0 ? Double.NEGATIVE_INFINITY : targetCost);
+            path1 = improved[0];
+            path2 = improved[1];
+            phase.end(reportedCost(metrics, improved, cities));
+        }
+        return new int[][]{path1, path2};
+    }
+
+    // True if there is a target cost and the total cost of the paths is at most that
+    private static boolean reached(int[] path1, int[] path2, List<int[]> cities, long targetCost) {
+        return targetCost >= 0 && (long) calculateCost(path1, cities) + calculateCost(path2, cities) <= targetCost;
+    }
+
+    // Total cost of the paths for the metrics report, NaN without computing it when metrics are disabled
+    private static double reportedCost(Metrics metrics, int[][] paths, List<int[]> cities) {
+        return metrics.enabled() ? calculateCost(paths[0], cities) + calculateCost(paths[1], cities) : Double.NaN;
+    }
+
+    // Cost the solvers minimize: the sum of both path costs, or the longer path for the makespan objective
+    public static double cost(int[][] paths, List<int[]> cities, SolverOptions options) {
+        int cost1 = calculateCost(paths[0], cities);
+        int cost2 = calculateCost(paths[1], cities);
+        if (options.interTour == InterTourExchange.Objective.MAKESPAN) {
+            return Math.max(cost1, cost2);
+        }
+        return cost1 + cost2;
+    }
+
+    // Writes the costs and the paths of both salesmen to the output file
+    public static void writeOutput(String outputFile, int[] path1, int[] path2, List<int[]> cities) throws IOException {
+        // Calculate the total cost for each path
+        int cost1 = calculateCost(path1, cities);
+        int cost2 = calculateCost(path2, cities);
+        int totalCost = cost1 + cost2; // Sum of costs of both paths
+
+        // Write the results to the output file
+        try (FileWriter writer = new FileWriter(outputFile)) {
+            writer.write(totalCost + "\n"); // Write total cost
+            writer.write(cost1 + " " + (path1.length) + "\n"); // Write cost and number of cities for path1
+            for (int i = 0; i < path1.length; i++) {
+                writer.write(path1[i] + "\n"); // Write each city in path1
+            }
+            writer.write("\n");
+            writer.write(cost2 + " " + (path2.length) + "\n"); // Write cost and number of cities for path2
+            for (int i = 0; i < path2.length - 1; i++) {
+                writer.write(path2[i] + "\n"); // Write each city in path2
+            }
+        }
+    }
+
     // Reads the input file and returns a list of cities with their coordinates
     public static List<int[]> readInput(String inputFile) throws IOException {
-        List<int[]> cities = new ArrayList<>();
-        BufferedReader reader = new BufferedReader(new FileReader(inputFile));
-        String line;
+        return cityList(CityFile.read(inputFile));
+    }
 
-        while ((line = reader.readLine()) != null) {
-            String[] parts = line.split("\\s+"); // Split the line into parts
-            int x = Integer.parseInt(parts[1]); // Parse x-coordinate
-            int y = Integer.parseInt(parts[2]); // Parse y-coordinate
-            cities.add(new int[]{x, y}); // Add the city coordinates to the list
+    // Coordinates of the parsed cities in the list form the solver works on
+    public static List<int[]> cityList(CityFile file) {
+        List<int[]> cities = new ArrayList<>(file.size());
+        for (int i = 0; i < file.size(); i++) {
+            cities.add(new int[]{file.xs[i], file.ys[i]}); // Add the city coordinates to the list
         }
-        reader.close(); // Close the BufferedReader
-
         return cities; // Return the list of cities
     }
 
+    // Builds a spatial index over the city coordinates
+    public static KdTree buildIndex(List<int[]> cities) {
+        double[] xs = new double[cities.size()];
+        double[] ys = new double[cities.size()];
+        for (int i = 0; i < cities.size(); i++) {
+            xs[i] = cities.get(i)[0];
+            ys[i] = cities.get(i)[1];
+        }
+        return new KdTree(xs, ys);
+    }
+
+    // Cities in the order of a Hilbert curve through them
+    public static int[] hilbertOrder(List<int[]> cities) {
+        IntDistanceKernel kernel = IntDistanceKernel.of(cities);
+        return HilbertCurve.order(kernel.xs, kernel.ys);
+    }
+
+    // Generates two initial paths by splitting the Hilbert order of the cities. The cycle through the order is cut at
+    // its longest edge and once more at the longest edge of its middle half, so each salesman gets at least a quarter
+    // of the cities.
+    public static int[][] hilbertForTwo(List<int[]> cities) {
+        int[] order = hilbertOrder(cities);
+        int n = order.length;
+        if (n < 2) {
+            return new int[][]{order, new int[0]};
+        }
+        // Start the cycle after its longest edge
+        int first = 0;
+        int longest = -1;
+        for (int k = 0; k < n; k++) {
+            int distance = calculateDistance(cities.get(order[k == 0 ? n - 1 : k - 1]), cities.get(order[k]));
+            if (distance > longest) {
+                longest = distance;
+                first = k;
+            }
+        }
+        int[] cycle = new int[n];
+        for (int k = 0; k < n; k++) {
+            cycle[k] = order[(first + k) % n];
+        }
+        // Cut again before position split, within the middle half
+        int split = Math.max(1, n / 4);
+        longest = -1;
+        for (int k = split; k <= Math.min(n - 1, 3 * n / 4); k++) {
+            int distance = calculateDistance(cities.get(cycle[k - 1]), cities.get(cycle[k]));
+            if (distance > longest) {
+                longest = distance;
+                split = k;
+            }
+        }
+        return new int[][]{Arrays.copyOfRange(cycle, 0, split), Arrays.copyOfRange(cycle, split, n)};
+    }
+
     // Generates two initial paths using the nearest neighbor algorithm
     public static int[][] nearestNeighborForTwo(List<int[]> cities, int start1, int start2) {
+        return nearestNeighborForTwo(cities, buildIndex(cities), start1, start2);
+    }
+
+    // Generates two initial paths using the nearest neighbor algorithm, answering nearest unvisited city queries
+    // from the given spatial index. Visited cities are removed from the index.
+    public static int[][] nearestNeighborForTwo(List<int[]> cities, KdTree index, int start1, int start2) {
         int numCities = cities.size();
-        boolean[] visited = new boolean[numCities]; // Array to keep track of visited cities
         int[] path1 = new int[numCities]; // Path for salesman 1
         int[] path2 = new int[numCities]; // Path for salesman 2
         int pathIndex1 = 0, pathIndex2 = 0;
@@ -80,105 +420,147 @@ public class TwoTSPNearestNeighbor {
         int currentCity1 = start1;
         int currentCity2 = start2;
 
-        visited[start1] = true; // Mark starting city of salesman 1 as visited
-        visited[start2] = true; // Mark starting city of salesman 2 as visited
+        index.remove(start1); // Mark starting city of salesman 1 as visited
+        index.remove(start2); // Mark starting city of salesman 2 as visited
 
         path1[pathIndex1++] = start1; // Add starting city to path of salesman 1
         path2[pathIndex2++] = start2; // Add starting city to path of salesman 2
 
+        // The nearest unvisited neighbors only change when the salesman moves or its neighbour gets taken
+        int nearestNeighbor1 = nearestUnvisited(cities, index, currentCity1);
+        int nearestNeighbor2 = nearestUnvisited(cities, index, currentCity2);
+
         // Continue until all cities are visited
         while (pathIndex1 + pathIndex2 < numCities) {
-            int nearestNeighbor1 = -1; // Nearest neighbor for salesman 1
-            int nearestNeighbor2 = -1; // Nearest neighbor for salesman 2
-            int nearestDistance1 = Integer.MAX_VALUE; // Distance to nearest neighbor for salesman 1
-            int nearestDistance2 = Integer.MAX_VALUE; // Distance to nearest neighbor for salesman 2
-
-            // Find the nearest unvisited neighbor for both salesmen
-            for (int city = 0; city < numCities; city++) {
-                if (!visited[city]) {
-                    int distance1 = calculateDistance(cities.get(currentCity1), cities.get(city)); // Distance from current city of salesman 1
-                    int distance2 = calculateDistance(cities.get(currentCity2), cities.get(city)); // Distance from current city of salesman 2
-
-                    if (distance1 < nearestDistance1) {
-                        nearestNeighbor1 = city; // Update nearest neighbor for salesman 1
-                        nearestDistance1 = distance1; // Update nearest distance for salesman 1
-                    }
-
-                    if (distance2 < nearestDistance2) {
-                        nearestNeighbor2 = city; // Update nearest neighbor for salesman 2
-                        nearestDistance2 = distance2; // Update nearest distance for salesman 2
-                    }
-                }
+            if (nearestNeighbor1 != -1 && index.isRemoved(nearestNeighbor1)) {
+                nearestNeighbor1 = nearestUnvisited(cities, index, currentCity1);
+            }
+            if (nearestNeighbor2 != -1 && index.isRemoved(nearestNeighbor2)) {
+                nearestNeighbor2 = nearestUnvisited(cities, index, currentCity2);
             }
+            int nearestDistance1 = nearestNeighbor1 == -1 ? Integer.MAX_VALUE
+                    : calculateDistance(cities.get(currentCity1), cities.get(nearestNeighbor1)); // Distance to nearest neighbor for salesman 1
+            int nearestDistance2 = nearestNeighbor2 == -1 ? Integer.MAX_VALUE
+                    : calculateDistance(cities.get(currentCity2), cities.get(nearestNeighbor2)); // Distance to nearest neighbor for salesman 2
 
             // Choose the closest neighbor and update paths and visited cities accordingly
             if (nearestNeighbor1 != -1 && (nearestNeighbor2 == -1 || nearestDistance1 <= nearestDistance2)) {
                 path1[pathIndex1++] = nearestNeighbor1; // Add nearest neighbor to path of salesman 1
                 currentCity1 = nearestNeighbor1; // Update current city of salesman 1
-                visited[nearestNeighbor1] = true; // Mark nearest neighbor as visited
-            }
-
-            if (nearestNeighbor2 != -1 && (nearestNeighbor1 == -1 || nearestDistance2 < nearestDistance1)) {
+                index.remove(nearestNeighbor1); // Mark nearest neighbor as visited
+                nearestNeighbor1 = nearestUnvisited(cities, index, currentCity1);
+            } else if (nearestNeighbor2 != -1) {
                 path2[pathIndex2++] = nearestNeighbor2; // Add nearest neighbor to path of salesman 2
                 currentCity2 = nearestNeighbor2; // Update current city of salesman 2
-                visited[nearestNeighbor2] = true; // Mark nearest neighbor as visited
+                index.remove(nearestNeighbor2); // Mark nearest neighbor as visited
+                nearestNeighbor2 = nearestUnvisited(cities, index, currentCity2);
             }
         }
         
         return new int[][]{Arrays.copyOf(path1, pathIndex1), Arrays.copyOf(path2, pathIndex2)}; // Return the paths
     }
 
-    // Optimizes the given path using the 2-opt algorithm
+    // Finds the unvisited city with the smallest rounded distance to the given city. Among equally distant
+    // cities the one with the lowest index wins, exactly like a linear scan over all cities would pick it.
+    private static int nearestUnvisited(List<int[]> cities, KdTree index, int city) {
+        int nearest = index.nearest(city);
+        if (nearest == -1) {
+            return -1;
+        }
+        // Every city whose exact distance is below distance + 0.5 rounds to the same distance
+        double limit = calculateDistance(cities.get(city), cities.get(nearest)) + 0.5;
+        int[] from = cities.get(city);
+        return index.lowestWithin(from[0], from[1], city, limit * limit);
+    }
+
+    // Optimizes the given path using the 2-opt algorithm. The first and the last city of the path stay fixed.
     public static int[] optimizeWith2Opt(int[] path, List<int[]> cities) {
-        int n = path.length;
+        return optimizeWith2Opt(path, cities, Metrics.Phase.NONE);
+    }
+
+    // Optimizes the path with 2-opt, recording every pass in the given phase
+    public static int[] optimizeWith2Opt(int[] path, List<int[]> cities, Metrics.Phase phase) {
+        IntDistanceKernel kernel = IntDistanceKernel.of(cities);
+        Tour tour = new Tour(path, cities.size(), false);
+        int n = tour.size();
         boolean improved = true;
 
+        // Coordinates in tour order, with the first city repeated at the end, kept in step with the tour
+        int[] px = new int[n + 1];
+        int[] py = new int[n + 1];
+        for (int k = 0; k < n; k++) {
+            px[k] = kernel.xs[tour.city(k)];
+            py[k] = kernel.ys[tour.city(k)];
+        }
+        if (n > 0) {
+            px[n] = px[0];
+            py[n] = py[0];
+        }
+        int[] gains = new int[GAIN_BLOCK];
+
         // Repeat until no improvement is found
         while (improved) {
             improved = false;
+            long applied = 0;
 
-            // Iterate over all possible pairs of edges
-            for (int i = 1; i < n - 2; i++) {
-                for (int j = i + 1; j < n - 1; j++) {
-                    int gain = calculate2OptGain(path, i, j, cities);
-                    if (gain < 0) {
-                        path = apply2OptSwap(path, i, j); // Apply the 2-opt swap
+            // Iterate over all possible pairs of edges (a, succ a) and (c, succ c), evaluating the moves for a
+            // block of positions c at once and applying the first improving one
+            for (int i = 0; i < n - 2; i++) {
+                int j = i + 2;
+                while (j < n) {
+                    int a = tour.city(i);
+                    int b = tour.city(i + 1);
+                    if (tour.isFixed(a, b)) {
+                        break; // The fixed closing edge of the path
+                    }
+                    int removed = kernel.rounded(a, b);
+                    int end = Math.min(n, j + GAIN_BLOCK);
+                    kernel.twoOptGains(px[i], py[i], px[i + 1], py[i + 1], px, py, j, end, gains);
+                    int next = end;
+                    for (int k = j; k < end; k++) {
+                        if (gains[k - j] >= removed) continue;
+                        int c = tour.city(k);
+                        int d = tour.next(c);
+                        if (d == a || tour.isFixed(c, d)) continue; // Adjacent edges or the fixed closing edge
+                        // Apply the 2-opt swap in place, always on the positions i + 1 .. k so the sweep visits the
+                        // moves in the same order as on a plain array
+                        tour.reversePositions(i + 1, k);
+                        mirrorReversal(px, py, i + 1, k);
                         improved = true; // Set improved to true to continue optimization
+                        applied++;
+                        next = k + 1;
+                        break;
                     }
+                    j = next;
                 }
             }
+            if (phase.enabled()) {
+                long evaluated = n < 3 ? 0 : (long) (n - 2) * (n - 1) / 2; // Pairs visited by the sweep
+                phase.pass(evaluated, applied, calculateCost(tour.toArray(), cities));
+            }
         }
 
-        return path; // Return the optimized path
+        return tour.toArray(); // Return the optimized path
     }
 
-    // Calculates the gain from a potential 2-opt swap
-    public static int calculate2OptGain(int[] path, int i, int j, List<int[]> cities) {
-        int n = path.length;
-        int[] a = cities.get(path[i - 1]);
-        int[] b = cities.get(path[i]);
-        int[] c = cities.get(path[j]);
-        int[] d = cities.get(path[(j + 1) % n]);
-
-        int currentCost = calculateDistance(a, b) + calculateDistance(c, d);
-        int newCost = calculateDistance(a, c) + calculateDistance(b, d);
-
-        return newCost - currentCost; // Return the cost difference (gain) from the 2-opt swap
+    // Repeats in the tour-order coordinates the reversal of the positions from .. to
+    private static void mirrorReversal(int[] px, int[] py, int from, int to) {
+        while (from < to) {
+            int x = px[from], y = py[from];
+            px[from] = px[to];
+            py[from] = py[to];
+            px[to] = x;
+            py[to] = y;
+            from++;
+            to--;
+        }
     }
 
-    // Applies the 2-opt swap to the path
-    public static int[] apply2OptSwap(int[] path, int i, int j) {
-        int[] newPath = new int[path.length];
-        System.arraycopy(path, 0, newPath, 0, i); // Copy the unchanged part of the path
-
-        int dec = 0;
-        // Reverse the segment of the path between i and j
-        for (int k = j; k >= i; k--) {
-            newPath[i + dec] = path[k];
-            dec++;
-        }
-        System.arraycopy(path, j + 1, newPath, j + 1, path.length - j - 1); // Copy the remaining part of the path
-        return newPath; // Return the new path after the 2-opt swap
+    // Improves the given path with Or-opt and 3-opt moves until the deadline. The first and the last city stay fixed.
+    public static int[] optimizeWithOrOpt(int[] path, DistanceProvider distances, int[][] candidates, long deadline) {
+        Tour tour = new Tour(path, distances.size(), false);
+        OrOpt.optimize(tour, distances, candidates, deadline);
+        return tour.toArray();
     }
 
     // Calculates the total cost of the given path
@@ -191,12 +573,13 @@ public class TwoTSPNearestNeighbor {
         return cost; // Return the total cost of the path
     }
 
+    // Exposes the rounded distances between the given cities to the shared optimizers
+    public static DistanceProvider distances(List<int[]> cities) {
+        return IntDistanceKernel.of(cities);
+    }
+
     // Calculates the Euclidean distance between two cities
     public static int calculateDistance(int[] city1, int[] city2) {
-        int x1 = city1[0];
-        int y1 = city1[1];
-        int x2 = city2[0];
-        int y2 = city2[1];
-        return (int) Math.round(Math.sqrt(Math.pow(x1 - x2, 2) + Math.pow(y1 - y2, 2))); // Return the Euclidean distance rounded to the nearest integer
+        return IntDistanceKernel.rounded(city1[0], city1[1], city2[0], city2[1]); // Euclidean distance rounded to the nearest integer
     }
 }
@@ -0,0 +1,149 @@
+// Uniform grid of buckets over city coordinates, about two cities per cell. It is built by a counting sort in linear
+// time, much faster than a KdTree, which pays off when only a few nearest neighbour queries follow (see
+// IncrementalSolver). Queries search rings of cells around the city until no closer city can remain; on very
+// clustered instances they slow down, as most cells are empty. Like KdTree, ties are broken by the lower city index.
+public class UniformGrid {
+
+    private final int[] xs;
+    private final int[] ys;
+    private final long minX;
+    private final long minY;
+    private final double cellSize;
+    private final int side;         // Cells per row and per column
+    private final int[] cellStart;  // First position of each cell in cities, cellStart[side * side] = n
+    private final int[] cities;     // City indices sorted by cell
+
+    public UniformGrid(int[] xs, int[] ys) {
+        int n = xs.length;
+        this.xs = xs;
+        this.ys = ys;
+        long lowX = Long.MAX_VALUE, lowY = Long.MAX_VALUE, highX = Long.MIN_VALUE, highY = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            lowX = Math.min(lowX, xs[i]);
+            highX = Math.max(highX, xs[i]);
+            lowY = Math.min(lowY, ys[i]);
+            highY = Math.max(highY, ys[i]);
+        }
+        this.minX = lowX;
+        this.minY = lowY;
+        this.side = Math.max(1, (int) Math.ceil(Math.sqrt(n / 2.0)));
+        long span = n == 0 ? 1 : Math.max(1, Math.max(highX - lowX, highY - lowY));
+        this.cellSize = (double) span / side;
+
+        // Counting sort of the cities by cell
+        this.cellStart = new int[side * side + 1];
+        for (int i = 0; i < n; i++) {
+            cellStart[cell(i) + 1]++;
+        }
+        for (int c = 0; c < side * side; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        this.cities = new int[n];
+        int[] fill = new int[side * side];
+        for (int i = 0; i < n; i++) {
+            int c = cell(i);
+            cities[cellStart[c] + fill[c]++] = i;
+        }
+    }
+
+    // Fills "result" with up to k other cities nearest to the given city, closest first, and returns how many were found
+    public int nearest(int city, int k, int[] result) {
+        k = Math.min(k, xs.length - 1);
+        if (k <= 0) {
+            return 0;
+        }
+        long[] heapDistance = new long[k]; // Max-heap of the best cities so far
+        int[] heapCity = new int[k];
+        int count = 0;
+        int cx = column(xs[city], minX);
+        int cy = column(ys[city], minY);
+        for (int ring = 0; ring <= side; ring++) {
+            // Cities in this ring are at least (ring - 1) cells away
+            if (count == k && ring > 0) {
+                double bound = (ring - 1) * cellSize;
+                if (heapDistance[0] < bound * bound) {
+                    break;
+                }
+            }
+            for (int gy = cy - ring; gy <= cy + ring; gy++) {
+                if (gy < 0 || gy >= side) continue;
+                boolean edgeRow = gy == cy - ring || gy == cy + ring;
+                for (int gx = cx - ring; gx <= cx + ring; gx += edgeRow ? 1 : 2 * ring) {
+                    if (gx >= 0 && gx < side) {
+                        count = scan(gy * side + gx, city, k, heapDistance, heapCity, count);
+                    }
+                    if (ring == 0) break;
+                }
+            }
+        }
+        // Pop the max-heap from the back to obtain the cities in ascending order
+        for (int size = count; size > 0; size--) {
+            result[size - 1] = heapCity[0];
+            heapCity[0] = heapCity[size - 1];
+            heapDistance[0] = heapDistance[size - 1];
+            siftDown(heapDistance, heapCity, 0, size - 1);
+        }
+        return count;
+    }
+
+    // Offers the cities of one cell to the heap and returns the new heap size
+    private int scan(int cell, int city, int k, long[] heapDistance, int[] heapCity, int count) {
+        for (int p = cellStart[cell]; p < cellStart[cell + 1]; p++) {
+            int other = cities[p];
+            if (other == city) continue;
+            long dx = (long) xs[other] - xs[city];
+            long dy = (long) ys[other] - ys[city];
+            long distance = dx * dx + dy * dy;
+            if (count < k) {
+                // Sift the new city up
+                int i = count++;
+                while (i > 0) {
+                    int parent = (i - 1) / 2;
+                    if (!worse(distance, other, heapDistance[parent], heapCity[parent])) break;
+                    heapDistance[i] = heapDistance[parent];
+                    heapCity[i] = heapCity[parent];
+                    i = parent;
+                }
+                heapDistance[i] = distance;
+                heapCity[i] = other;
+            } else if (worse(heapDistance[0], heapCity[0], distance, other)) {
+                heapDistance[0] = distance;
+                heapCity[0] = other;
+                siftDown(heapDistance, heapCity, 0, count);
+            }
+        }
+        return count;
+    }
+
+    private static void siftDown(long[] heapDistance, int[] heapCity, int i, int size) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) return;
+            if (child + 1 < size && worse(heapDistance[child + 1], heapCity[child + 1], heapDistance[child], heapCity[child])) {
+                child++;
+            }
+            if (!worse(heapDistance[child], heapCity[child], heapDistance[i], heapCity[i])) return;
+            long distance = heapDistance[i];
+            int city = heapCity[i];
+            heapDistance[i] = heapDistance[child];
+            heapCity[i] = heapCity[child];
+            heapDistance[child] = distance;
+            heapCity[child] = city;
+            i = child;
+        }
+    }
+
+    // True if the first city is farther away than the second, ties broken by the higher index
+    private static boolean worse(long distanceA, int cityA, long distanceB, int cityB) {
+        return distanceA > distanceB || (distanceA == distanceB && cityA > cityB);
+    }
+
+    private int cell(int city) {
+        return column(ys[city], minY) * side + column(xs[city], minX);
+    }
+
+    // Column of an x coordinate or row of a y coordinate, given the smallest coordinate on that axis
+    private int column(int value, long min) {
+        return Math.min(side - 1, (int) ((value - min) / cellSize));
+    }
+}
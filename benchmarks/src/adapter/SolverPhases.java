@@ -0,0 +1,72 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Default-package adapter that exposes the solver phases to the benchmarks in package "benchmarks"
+public class SolverPhases implements benchmarks.Phases {
+
+    private List<int[]> cities;
+    private DistanceProvider rounded;   // Rounded distances used by TwoTSPNearestNeighbor
+    private DistanceProvider euclidean; // Exact distances used by TwoSalesmenTSP
+    private int[][] candidates;
+
+    @Override
+    public int[][] read(String file) throws IOException {
+        CityFile cityFile = CityFile.read(file);
+        return new int[][]{cityFile.xs, cityFile.ys};
+    }
+
+    @Override
+    public void load(int[] xs, int[] ys, int neighbors) {
+        double[] x = new double[xs.length];
+        double[] y = new double[ys.length];
+        cities = new ArrayList<>(xs.length);
+        for (int i = 0; i < xs.length; i++) {
+            x[i] = xs[i];
+            y[i] = ys[i];
+            cities.add(new int[]{xs[i], ys[i]});
+        }
+        rounded = TwoTSPNearestNeighbor.distances(cities);
+        euclidean = new CoordinateDistanceProvider(x, y);
+        candidates = new KdTree(x, y).candidateLists(neighbors);
+    }
+
+    @Override
+    public int[][] nearestNeighbor() {
+        return TwoTSPNearestNeighbor.nearestNeighborForTwo(cities, 0, 1);
+    }
+
+    @Override
+    public int[][] twoOpt(int[][] paths) {
+        return new int[][]{
+                NeighborListTwoOpt.optimize(paths[0], rounded, candidates, false),
+                NeighborListTwoOpt.optimize(paths[1], rounded, candidates, false)};
+    }
+
+    @Override
+    public int[][] exhaustiveTwoOpt(int[][] paths) {
+        return new int[][]{
+                TwoTSPNearestNeighbor.optimizeWith2Opt(paths[0], cities),
+                TwoTSPNearestNeighbor.optimizeWith2Opt(paths[1], cities)};
+    }
+
+    @Override
+    public int[][] christofides() {
+        List<Integer> tour = new TwoSalesmenTSP.ChristofidesAlgorithm(euclidean).findTSPPath();
+        int[] path = new int[tour.size() - 1]; // The last entry repeats the first city
+        for (int i = 0; i < path.length; i++) {
+            path[i] = tour.get(i);
+        }
+        return new int[][]{path};
+    }
+
+    @Override
+    public double cost(int[][] paths, boolean closed) {
+        double total = 0;
+        for (int[] path : paths) {
+            total += closed ? new Tour(path, euclidean.size(), true).length(euclidean)
+                    : TwoTSPNearestNeighbor.calculateCost(path, cities);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,48 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The exhaustive 2-opt of TwoTSPNearestNeighbor, which runs the distance kernel on every pair of edges.
+// It takes quadratic time per sweep, so it only runs on the small instances.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ExhaustiveTwoOptBenchmark {
+
+    @Param({"test-input-1", "test-input-2", "uniform-2000", "clustered-2000"})
+    public String instance;
+
+    private Phases phases;
+    private int[][] constructed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        phases = Phases.create();
+        int[][] coordinates = Instances.load(instance, phases);
+        phases.load(coordinates[0], coordinates[1], 10);
+        constructed = phases.nearestNeighbor();
+    }
+
+    @Benchmark
+    public int[][] exhaustiveTwoOpt(PhaseBenchmarks.Quality quality) {
+        int[][] paths = phases.exhaustiveTwoOpt(constructed);
+        quality.tourCost = phases.cost(paths, false);
+        return paths;
+    }
+}
@@ -0,0 +1,98 @@
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+// Benchmark instances: the bundled test inputs and generated uniform or clustered ones.
+// Names are "test-input-<k>" for the files in the repository root (or the directory given by the system property
+// twotsp.inputs), and "uniform-<n>" or "clustered-<n>" for n generated cities. Generated instances use a fixed seed.
+public final class Instances {
+
+    private static final int SIDE = 1_000_000; // Coordinates of generated cities lie in [0, SIDE)
+    private static final int CLUSTER_SIZE = 1000; // Mean number of cities per cluster
+    private static final long SEED = 42;
+
+    private Instances() {
+    }
+
+    // Coordinates of the named instance as {xs, ys}
+    public static int[][] load(String name, Phases phases) throws IOException {
+        if (name.startsWith("test-input-")) {
+            return phases.read(file(name).toString());
+        }
+        int dash = name.lastIndexOf('-');
+        int n = Integer.parseInt(name.substring(dash + 1));
+        switch (name.substring(0, dash)) {
+            case "uniform":
+                return uniform(n);
+            case "clustered":
+                return clustered(n);
+            default:
+                throw new IllegalArgumentException("Unknown instance: " + name);
+        }
+    }
+
+    // Path of the instance as a city file, writing generated instances to a temporary file first
+    public static Path file(String name, int[][] coordinates) throws IOException {
+        if (name.startsWith("test-input-")) {
+            return file(name);
+        }
+        Path file = Files.createTempFile(name, ".txt");
+        file.toFile().deleteOnExit();
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < coordinates[0].length; i++) {
+                writer.write(i + " " + coordinates[0][i] + " " + coordinates[1][i] + "\n");
+            }
+        }
+        return file;
+    }
+
+    private static Path file(String name) {
+        return Paths.get(System.getProperty("twotsp.inputs", ".."), name + ".txt");
+    }
+
+    private static int[][] uniform(int n) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextInt(SIDE);
+            ys[i] = random.nextInt(SIDE);
+        }
+        return new int[][]{xs, ys};
+    }
+
+    // Cities spread normally around uniformly placed cluster centres
+    private static int[][] clustered(int n) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        int clusters = Math.max(1, n / CLUSTER_SIZE);
+        double spread = SIDE / (4.0 * Math.sqrt(clusters));
+        double[] centreX = new double[clusters];
+        double[] centreY = new double[clusters];
+        for (int c = 0; c < clusters; c++) {
+            centreX[c] = random.nextDouble(SIDE);
+            centreY[c] = random.nextDouble(SIDE);
+        }
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            int c = random.nextInt(clusters);
+            xs[i] = clamp(centreX[c] + spread * gaussian(random));
+            ys[i] = clamp(centreY[c] + spread * gaussian(random));
+        }
+        return new int[][]{xs, ys};
+    }
+
+    // Standard normal sample by the Box-Muller transform
+    private static double gaussian(SplittableRandom random) {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private static int clamp(double value) {
+        return (int) Math.max(0, Math.min(SIDE - 1, Math.round(value)));
+    }
+}
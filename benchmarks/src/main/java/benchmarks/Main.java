@@ -0,0 +1,21 @@
+package benchmarks;
+
+import java.util.Arrays;
+
+// Runs JMH with the GC profiler unless other profilers are requested, so allocation rates are always reported
+public final class Main {
+
+    private Main() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (!Arrays.asList(args).contains("-prof")) {
+            String[] withProfiler = new String[args.length + 2];
+            withProfiler[0] = "-prof";
+            withProfiler[1] = "gc";
+            System.arraycopy(args, 0, withProfiler, 2, args.length);
+            args = withProfiler;
+        }
+        org.openjdk.jmh.Main.main(args);
+    }
+}
@@ -0,0 +1,79 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Throughput of every solver phase on its own, with the tour cost each phase produced reported next to the score.
+// The 2-opt benchmark starts from the nearest neighbour paths built once per trial.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class PhaseBenchmarks {
+
+    @Param({"test-input-1", "test-input-2", "test-input-3", "test-input-4",
+            "uniform-100000", "clustered-100000", "uniform-1000000", "clustered-1000000"})
+    public String instance;
+
+    private Phases phases;
+    private Path file;
+    private int[][] constructed;
+
+    // Tour cost of the last invocation in an iteration
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Quality {
+        public double tourCost;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        phases = Phases.create();
+        int[][] coordinates = Instances.load(instance, phases);
+        file = Instances.file(instance, coordinates);
+        phases.load(coordinates[0], coordinates[1], 10);
+        constructed = phases.nearestNeighbor();
+    }
+
+    @Benchmark
+    public int[][] parse() throws IOException {
+        return phases.read(file.toString());
+    }
+
+    @Benchmark
+    public int[][] nearestNeighbor(Quality quality) {
+        int[][] paths = phases.nearestNeighbor();
+        quality.tourCost = phases.cost(paths, false);
+        return paths;
+    }
+
+    @Benchmark
+    public int[][] twoOpt(Quality quality) {
+        int[][] paths = phases.twoOpt(constructed);
+        quality.tourCost = phases.cost(paths, false);
+        return paths;
+    }
+
+    @Benchmark
+    public int[][] christofides(Quality quality) {
+        int[][] tour = phases.christofides();
+        quality.tourCost = phases.cost(tour, true);
+        return tour;
+    }
+}
@@ -0,0 +1,37 @@
+package benchmarks;
+
+import java.io.IOException;
+
+// The solver phases as seen by the benchmarks. The solver classes live in the default package, which named packages
+// cannot import, so the default-package class SolverPhases implements this interface and is loaded by name.
+public interface Phases {
+
+    // Parses a city file and returns its coordinates as {xs, ys}
+    int[][] read(String file) throws IOException;
+
+    // Prepares distances and candidate lists for the instance the following phases work on
+    void load(int[] xs, int[] ys, int neighbors);
+
+    // Nearest neighbour construction of the two open paths, starting at cities 0 and 1
+    int[][] nearestNeighbor();
+
+    // Neighbour-list 2-opt on copies of the open paths
+    int[][] twoOpt(int[][] paths);
+
+    // Exhaustive 2-opt on copies of the open paths
+    int[][] exhaustiveTwoOpt(int[][] paths);
+
+    // Christofides tour over all cities, returned as a single closed path
+    int[][] christofides();
+
+    // Length of the paths: rounded distances for open paths, exact ones for closed tours
+    double cost(int[][] paths, boolean closed);
+
+    static Phases create() {
+        try {
+            return (Phases) Class.forName("SolverPhases").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Solver adapter SolverPhases is missing from the class path", e);
+        }
+    }
+}